@@ -0,0 +1,90 @@
+package com.yardenzamir.tooltipsreforgeddyed.bench;
+
+import net.minecraft.util.Identifier;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic stand-in for a large modpack: item ids, tag ids and which tags each item carries,
+ * at roughly the scale of a big pack. Everything is plain {@link Identifier}s, so benchmarks can
+ * use it without bootstrapping the game.
+ */
+public final class SyntheticPack {
+    public static final int ITEM_COUNT = 30_000;
+    public static final int TAG_COUNT = 5_000;
+    public static final int RULE_COUNT = 500;
+    public static final int MAX_TAGS_PER_ITEM = 40;
+
+    private static final String[] NAMESPACES = {
+        "minecraft", "forge", "c", "create", "mekanism", "thermal", "ae2", "botania", "farmersdelight", "immersiveengineering"
+    };
+    private static final String[] GROUPS = {
+        "ores", "ingots", "nuggets", "tools", "armors", "mineable", "planks", "logs", "dyes",
+        "storage_blocks", "gems", "dusts", "plates", "gears", "rods", "crops", "seeds", "foods"
+    };
+
+    public final List<Identifier> itemIds;
+    public final List<Identifier> tagIds;
+    /** Indices into {@link #tagIds} for every item, 20 to 40 per item. */
+    public final int[][] itemTags;
+
+    private final Random random;
+
+    private SyntheticPack(long seed) {
+        this.random = new Random(seed);
+        this.tagIds = new ArrayList<>(TAG_COUNT);
+        for (int i = 0; i < TAG_COUNT; i++) {
+            String namespace = NAMESPACES[i % NAMESPACES.length];
+            String group = GROUPS[(i / NAMESPACES.length) % GROUPS.length];
+            tagIds.add(new Identifier(namespace, group + "/material_" + i));
+        }
+
+        this.itemIds = new ArrayList<>(ITEM_COUNT);
+        this.itemTags = new int[ITEM_COUNT][];
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            itemIds.add(new Identifier(NAMESPACES[i % NAMESPACES.length], "item_" + i));
+            int[] tags = new int[20 + random.nextInt(MAX_TAGS_PER_ITEM - 19)];
+            for (int t = 0; t < tags.length; t++) {
+                tags[t] = random.nextInt(TAG_COUNT);
+            }
+            itemTags[i] = tags;
+        }
+    }
+
+    public static SyntheticPack generate(long seed) {
+        return new SyntheticPack(seed);
+    }
+
+    /**
+     * {@code count} tagList keys in declaration order, {@code wildcardShare} of them wildcards.
+     * Wildcards mix namespace/group prefixes, numbered prefixes and leading-star suffix patterns
+     * so both the prefix index and the segment matcher get exercised.
+     */
+    public List<String> rules(int count, double wildcardShare) {
+        List<String> rules = new ArrayList<>(count);
+        int wildcards = (int) Math.round(count * wildcardShare);
+        for (int i = 0; i < count; i++) {
+            if (i < wildcards) {
+                String namespace = NAMESPACES[random.nextInt(NAMESPACES.length)];
+                String group = GROUPS[random.nextInt(GROUPS.length)];
+                switch (i % 3) {
+                    case 0 -> rules.add(namespace + ":" + group + "/*");
+                    case 1 -> rules.add(namespace + ":" + group + "/material_" + random.nextInt(50) + "*");
+                    default -> rules.add("*:" + group + "/*_" + random.nextInt(100));
+                }
+            } else {
+                rules.add(tagIds.get(random.nextInt(TAG_COUNT)).toString());
+            }
+        }
+        // Interleave so wildcards are not all declared first
+        Collections.shuffle(rules, random);
+        return rules;
+    }
+
+    public Random random() {
+        return random;
+    }
+}
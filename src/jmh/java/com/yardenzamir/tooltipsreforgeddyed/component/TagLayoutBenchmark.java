@@ -0,0 +1,54 @@
+package com.yardenzamir.tooltipsreforgeddyed.component;
+
+import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig.ResolvedTag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * Badge row wrapping with a stub font: every glyph is 6 pixels wide, like the default font's
+ * average, scaled the same way {@link CustomTagComponent} scales real widths.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TagLayoutBenchmark {
+    private static final ToIntFunction<ResolvedTag> STUB_WIDTH = tag -> (int) (tag.text().length() * 6 * 0.75f) + 4;
+    private static final int ROW_HEIGHT = 8;
+    private static final int MAX_WIDTH = 240;
+
+    @Param({"4", "16", "40"})
+    public int tagCount;
+
+    private List<ResolvedTag> tags;
+
+    @Setup
+    public void setup() {
+        String[] words = {"Wood", "Blade", "Ore", "Storage Blocks", "Pickaxes", "Mineable", "Dyes", "Ingots", "Planks", "Logs That Burn"};
+        tags = new ArrayList<>();
+        for (int i = 0; i < tagCount; i++) {
+            tags.add(new ResolvedTag(words[i % words.length], 0xFF000000 | (i * 0x1F3D5B)));
+        }
+    }
+
+    @Benchmark
+    public Object calculateLayout() {
+        return CustomTagComponent.calculateLayout(tags, STUB_WIDTH, ROW_HEIGHT, MAX_WIDTH);
+    }
+}
@@ -0,0 +1,149 @@
+package com.yardenzamir.tooltipsreforgeddyed.component;
+
+import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig.ResolvedTag;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Wares trade layout and a drawn frame for agreements of growing size. {@link #frame} runs the
+ * component's own draw code on a canvas that hands everything to the blackhole, since emitting
+ * vertices needs a render context; its cost should flatten out once the agreement is larger than
+ * the icon cap, which for frames is the config default.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TradeLayoutBenchmark {
+    // Stub font: 6 pixels per glyph, 9 pixels per line, like the default font
+    private static final IntUnaryOperator SUMMARY_WIDTH = hidden -> ("+" + hidden + " more").length() * 6;
+    private static final int LINE_HEIGHT = 9;
+    private static final int MAX_WIDTH = 240;
+
+    @Param({"4", "40", "512"})
+    public int entries;
+
+    @Param({"24"})
+    public int maxIcons;
+
+    private WaresTradeComponent trade;
+    private final BlackholeCanvas canvas = new BlackholeCanvas();
+
+    @Setup
+    public void setup() {
+        NbtCompound nbt = new NbtCompound();
+        nbt.put("requestedItems", itemList(entries));
+        nbt.put("paymentItems", itemList(Math.max(1, entries / 4)));
+        trade = WaresTradeComponent.parse(nbt, id -> true);
+    }
+
+    private static NbtList itemList(int size) {
+        NbtList list = new NbtList();
+        for (int i = 0; i < size; i++) {
+            NbtCompound entry = new NbtCompound();
+            // Distinct ids, so no entries merge and the grid has one icon per entry
+            entry.putString("id", "bench:item_" + i);
+            entry.putByte("Count", (byte) 1);
+            list.add(entry);
+        }
+        return list;
+    }
+
+    private WaresTradeComponent.Layout layout() {
+        return WaresTradeComponent.calculateLayout(entries, Math.max(1, entries / 4), maxIcons, MAX_WIDTH, LINE_HEIGHT, SUMMARY_WIDTH);
+    }
+
+    @Benchmark
+    public Object calculateLayout() {
+        return layout();
+    }
+
+    @Benchmark
+    public void frame(Blackhole blackhole) {
+        canvas.blackhole = blackhole;
+        trade.draw(canvas, 0, 0, MAX_WIDTH);
+    }
+
+    /**
+     * Draws nothing; consumes every coordinate and color so none of the work can be dropped.
+     * Icons are never materialized, which the game does once per line anyway.
+     */
+    private static final class BlackholeCanvas implements TooltipCanvas {
+        Blackhole blackhole;
+
+        @Override
+        public int fontHeight() {
+            return LINE_HEIGHT;
+        }
+
+        @Override
+        public int textWidth(String text) {
+            return text.length() * 6;
+        }
+
+        @Override
+        public int textWidth(ResolvedTag tag) {
+            return tag.text().length() * 6;
+        }
+
+        @Override
+        public void beginQuads() {
+        }
+
+        @Override
+        public void quad(int x1, int y1, int x2, int y2, int color) {
+            blackhole.consume(x1 ^ y1 ^ x2 ^ y2 ^ color);
+        }
+
+        @Override
+        public void beginScaledText(float scale) {
+        }
+
+        @Override
+        public void scaledText(String text, float x, float y, int color) {
+            blackhole.consume(text);
+        }
+
+        @Override
+        public void endScaledText() {
+        }
+
+        @Override
+        public void submit() {
+        }
+
+        @Override
+        public void fill(int x1, int y1, int x2, int y2, int color) {
+            blackhole.consume(x1 ^ y1 ^ x2 ^ y2 ^ color);
+        }
+
+        @Override
+        public void text(String text, int x, int y, int color) {
+            blackhole.consume(text);
+            blackhole.consume(x ^ y ^ color);
+        }
+
+        @Override
+        public void item(WaresTradeComponent.TradeItem item, int x, int y) {
+            blackhole.consume(item);
+            blackhole.consume(x ^ y);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.yardenzamir.tooltipsreforgeddyed.component;
+
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.util.Identifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Parsing Wares agreements of different sizes, cold and through the trade cache. Item ids are
+ * checked against a synthetic id set instead of the game registry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TradeParseBenchmark {
+    // A handful of entries is a normal agreement; the large sizes are bulk orders
+    @Param({"4", "64", "512"})
+    public int entries;
+
+    private NbtCompound trade;
+    private Predicate<Identifier> isKnownItem;
+    private TradeComponentCache cache;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        Set<Identifier> known = new HashSet<>();
+        for (int i = 0; i < 2_000; i++) {
+            known.add(new Identifier("bench", "item_" + i));
+        }
+        isKnownItem = known::contains;
+
+        trade = new NbtCompound();
+        trade.put("requestedItems", itemList(random, entries));
+        trade.put("paymentItems", itemList(random, Math.max(1, entries / 4)));
+
+        cache = new TradeComponentCache();
+        cache.get(trade, nbt -> WaresTradeComponent.parse(nbt, isKnownItem));
+    }
+
+    private static NbtList itemList(Random random, int size) {
+        NbtList list = new NbtList();
+        // Draw from a pool a quarter of the list size so a realistic share of entries merge
+        int pool = Math.max(1, size / 4);
+        for (int i = 0; i < size; i++) {
+            NbtCompound entry = new NbtCompound();
+            entry.putString("id", "bench:item_" + random.nextInt(pool));
+            entry.putByte("Count", (byte) (1 + random.nextInt(64)));
+            if (random.nextInt(4) == 0) {
+                NbtCompound tag = new NbtCompound();
+                tag.putInt("Damage", random.nextInt(3));
+                entry.put("tag", tag);
+            }
+            list.add(entry);
+        }
+        return list;
+    }
+
+    @Benchmark
+    public WaresTradeComponent parse() {
+        return WaresTradeComponent.parse(trade, isKnownItem);
+    }
+
+    @Benchmark
+    public WaresTradeComponent cachedLookup() {
+        return cache.get(trade, nbt -> WaresTradeComponent.parse(nbt, isKnownItem));
+    }
+}
@@ -0,0 +1,173 @@
+package com.yardenzamir.tooltipsreforgeddyed.config;
+
+import com.yardenzamir.tooltipsreforgeddyed.component.WaresTradeComponent;
+import com.yardenzamir.tooltipsreforgeddyed.diagnostics.WorkloadDump;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.registry.tag.TagKey;
+import net.minecraft.util.Identifier;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replays a {@code /tooltipsdyed dump} against a config file without a game client: each
+ * recorded hover goes through the same tag resolution and trade parsing a cache miss does in
+ * game. Reports throughput, latency percentiles and bytes allocated per hover.
+ * <pre>
+ * ./gradlew replay -PreplayArgs="tooltips_reforged_dyed_dump.nbt config/tooltips_reforged_dyed.json [iterations]"
+ * </pre>
+ * The in-game caches are bypassed on purpose, so the numbers are the cold cost per hover. Trades
+ * are parsed against the vanilla registries, so entries naming modded items are skipped as
+ * unknown.
+ */
+public final class HoverReplay {
+    private static final int WARMUP_ITERATIONS = 5;
+
+    private final ConfigSnapshot snapshot;
+    private final List<Hover> hovers;
+    private long sink;
+
+    private HoverReplay(ConfigSnapshot snapshot, List<Hover> hovers) {
+        this.snapshot = snapshot;
+        this.hovers = hovers;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: HoverReplay <dump.nbt> <config.json> [iterations]");
+            System.exit(2);
+        }
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        // Trade parsing looks items up in the registries
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+        HoverReplay replay = load(Path.of(args[0]), Path.of(args[1]));
+        replay.run(iterations);
+    }
+
+    private static HoverReplay load(Path dumpFile, Path configFile) throws IOException, ConfigParser.ConfigParseException {
+        NbtCompound dump;
+        try (InputStream in = Files.newInputStream(dumpFile)) {
+            dump = NbtIo.readCompressed(in);
+        }
+        if (dump.getInt("version") != WorkloadDump.VERSION) {
+            throw new IOException("Unsupported dump version " + dump.getInt("version"));
+        }
+
+        ConfigSnapshot snapshot;
+        try (Reader reader = Files.newBufferedReader(configFile)) {
+            snapshot = ConfigSnapshot.of(ConfigParser.parse(reader));
+        }
+
+        NbtList tagIds = dump.getList("tags", NbtElement.STRING_TYPE);
+        TagKey<?>[] itemTagKeys = new TagKey<?>[tagIds.size()];
+        TagKey<?>[] blockTagKeys = new TagKey<?>[tagIds.size()];
+        for (int i = 0; i < tagIds.size(); i++) {
+            Identifier id = new Identifier(tagIds.getString(i));
+            itemTagKeys[i] = TagKey.of(RegistryKeys.ITEM, id);
+            blockTagKeys[i] = TagKey.of(RegistryKeys.BLOCK, id);
+        }
+        List<TagKey<?>> allTags = new ArrayList<>(Arrays.asList(itemTagKeys));
+        allTags.addAll(Arrays.asList(blockTagKeys));
+        snapshot.buildTable(allTags.iterator());
+
+        Map<Identifier, Hover> byItem = new HashMap<>();
+        NbtList items = dump.getList("items", NbtElement.COMPOUND_TYPE);
+        for (int i = 0; i < items.size(); i++) {
+            NbtCompound item = items.getCompound(i);
+            Identifier id = new Identifier(item.getString("id"));
+            byItem.put(id, new Hover(id, keys(item.getIntArray("itemTags"), itemTagKeys),
+                keys(item.getIntArray("blockTags"), blockTagKeys), null));
+        }
+
+        List<Hover> hovers = new ArrayList<>();
+        NbtList recorded = dump.getList("hovers", NbtElement.COMPOUND_TYPE);
+        for (int i = 0; i < recorded.size(); i++) {
+            NbtCompound hover = recorded.getCompound(i);
+            Hover item = byItem.get(new Identifier(hover.getString("id")));
+            if (item == null) continue;
+            NbtCompound nbt = hover.contains("tag", NbtElement.COMPOUND_TYPE) ? hover.getCompound("tag") : null;
+            hovers.add(new Hover(item.itemId(), item.itemTags(), item.blockTags(), nbt));
+        }
+        if (hovers.isEmpty()) {
+            System.out.println("Dump has no recorded hovers; replaying every item once instead");
+            hovers.addAll(byItem.values());
+        }
+
+        System.out.printf("Loaded %d items, %d tags, %d hovers, %d config rules%n",
+            byItem.size(), tagIds.size(), hovers.size(), snapshot.tagCount());
+        return new HoverReplay(snapshot, hovers);
+    }
+
+    private static TagKey<?>[] keys(int[] indices, TagKey<?>[] table) {
+        TagKey<?>[] keys = new TagKey<?>[indices.length];
+        for (int i = 0; i < indices.length; i++) keys[i] = table[indices[i]];
+        return keys;
+    }
+
+    private void run(int iterations) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            for (Hover hover : hovers) replay(hover);
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long[] latencies = new long[hovers.size() * iterations];
+        if (latencies.length == 0) {
+            System.out.println("Nothing to replay");
+            return;
+        }
+        int n = 0;
+
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (Hover hover : hovers) {
+                long hoverStart = System.nanoTime();
+                replay(hover);
+                latencies[n++] = System.nanoTime() - hoverStart;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        Arrays.sort(latencies);
+        System.out.printf("%d hovers in %.1f ms: %.0f hovers/s%n", n, elapsed / 1e6, n / (elapsed / 1e9));
+        System.out.printf("latency us: p50 %.2f  p90 %.2f  p99 %.2f  p99.9 %.2f  max %.2f%n",
+            percentile(latencies, 0.5), percentile(latencies, 0.9), percentile(latencies, 0.99),
+            percentile(latencies, 0.999), latencies[n - 1] / 1e3);
+        System.out.printf("allocated: %.0f bytes/hover%n", (double) allocated / n);
+        // Keeps the results observable so the JIT can't drop the work
+        System.out.println("checksum " + sink);
+    }
+
+    private void replay(Hover hover) {
+        sink += snapshot.resolve(hover.itemId(), Arrays.stream(hover.itemTags()), Arrays.stream(hover.blockTags())).size();
+        NbtCompound trade = snapshot.tradeNbt(hover.itemId(), hover.nbt());
+        if (trade != null) {
+            WaresTradeComponent.clearCache();
+            sink += WaresTradeComponent.fromNbt(trade).hashCode();
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1e3;
+    }
+
+    private record Hover(Identifier itemId, TagKey<?>[] itemTags, TagKey<?>[] blockTags, NbtCompound nbt) {}
+}
@@ -0,0 +1,107 @@
+package com.yardenzamir.tooltipsreforgeddyed.config;
+
+import com.yardenzamir.tooltipsreforgeddyed.bench.SyntheticPack;
+import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig.ConfigData;
+import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig.TagEntry;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.registry.tag.TagKey;
+import net.minecraft.util.Identifier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whether the persisted tag table pays for itself. The cache is only read for the first table of
+ * a launch, before the JIT has compiled any of this code, so each measurement runs in a fresh JVM:
+ * one writes the cache file, then every round times compiling the table and loading it from the
+ * file in a JVM of its own.
+ * <pre>
+ * ./gradlew tableCacheStartup [-PtableCacheRounds=10]
+ * </pre>
+ * JMH can't measure this fairly: writing the file means compiling once first, which warms the
+ * compile side in the same fork.
+ */
+public final class TableCacheStartup {
+    private static final long CONFIG_HASH = 0x5EED;
+    private static final String TRANSLATION_SET = "en_us";
+
+    private TableCacheStartup() {}
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2) {
+            System.out.println(measure(args[0], Path.of(args[1])));
+            return;
+        }
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        Path file = Files.createTempFile("tooltips_reforged_dyed", ".cache");
+        try {
+            child("write", file);
+            long[] compile = new long[rounds];
+            long[] load = new long[rounds];
+            for (int i = 0; i < rounds; i++) {
+                compile[i] = child("compile", file);
+                load[i] = child("load", file);
+            }
+            System.out.printf("first table of a launch, %d rounds, median (min..max) ms%n", rounds);
+            System.out.printf("compile     %s%n", summary(compile));
+            System.out.printf("load cache  %s%n", summary(load));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static long measure(String mode, Path file) throws IOException {
+        SyntheticPack pack = SyntheticPack.generate(42);
+        ConfigData config = new ConfigData();
+        for (String rule : pack.rules(SyntheticPack.RULE_COUNT, 0.5)) {
+            config.tagList.put(rule, new TagEntry(null, null, null));
+        }
+        ConfigSnapshot snapshot = ConfigSnapshot.of(config, CONFIG_HASH);
+        // Both registries, as the game hands them over
+        List<TagKey<?>> tags = new ArrayList<>();
+        for (Identifier id : pack.tagIds) tags.add(TagKey.of(RegistryKeys.ITEM, id));
+        for (Identifier id : pack.tagIds) tags.add(TagKey.of(RegistryKeys.BLOCK, id));
+
+        DerivedNames.refresh(TRANSLATION_SET);
+        CompiledTableCache.useFile(file);
+        long start = System.nanoTime();
+        switch (mode) {
+            case "write" -> {
+                CompiledTableCache.saveAsync(CONFIG_HASH, CompiledTableCache.hashTags(tags, TRANSLATION_SET), snapshot.buildTable(tags.iterator()));
+                ForkJoinPool.commonPool().awaitQuiescence(1, TimeUnit.MINUTES);
+            }
+            case "compile" -> snapshot.buildTable(tags.iterator());
+            case "load" -> snapshot.loadOrBuildTable(tags);
+            default -> throw new IllegalArgumentException(mode);
+        }
+        long elapsed = System.nanoTime() - start;
+        // A key mismatch would quietly time a compile instead
+        if (mode.equals("load") && CompiledTableCache.load(CONFIG_HASH, CompiledTableCache.hashTags(tags, TRANSLATION_SET)).isEmpty()) {
+            throw new IllegalStateException("Cache file " + file + " doesn't match");
+        }
+        return elapsed;
+    }
+
+    private static long child(String mode, Path file) throws IOException, InterruptedException {
+        Path java = Path.of(System.getProperty("java.home"), "bin", "java");
+        Process process = new ProcessBuilder(java.toString(), "-cp", System.getProperty("java.class.path"),
+            TableCacheStartup.class.getName(), mode, file.toString())
+            .redirectError(ProcessBuilder.Redirect.INHERIT)
+            .start();
+        String output = new String(process.getInputStream().readAllBytes()).trim();
+        if (process.waitFor() != 0) throw new IllegalStateException(mode + " run failed");
+        return Long.parseLong(output);
+    }
+
+    private static String summary(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return String.format("%.1f (%.1f..%.1f)", sorted[sorted.length / 2] / 1e6, sorted[0] / 1e6, sorted[sorted.length - 1] / 1e6);
+    }
+}
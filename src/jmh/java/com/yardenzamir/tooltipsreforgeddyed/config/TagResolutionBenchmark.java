@@ -0,0 +1,110 @@
+package com.yardenzamir.tooltipsreforgeddyed.config;
+
+import com.yardenzamir.tooltipsreforgeddyed.bench.SyntheticPack;
+import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig.ConfigData;
+import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig.ResolvedTag;
+import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig.TagEntry;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.registry.tag.TagKey;
+import net.minecraft.util.Identifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Tag matching and per-item resolution against a synthetic 30k item / 5k tag / 500 rule pack.
+ * {@code resolveItem} is the work {@code CustomTagsConfig.getTagsForItem} does on a cache miss;
+ * a hit is a single map lookup and not worth measuring here. Package-private results are returned
+ * as {@code Object} because JMH's generated harness lives in another package.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TagResolutionBenchmark {
+    @Param({"wildcard", "exact"})
+    public String ruleMix;
+
+    @Param({"false", "true"})
+    public boolean useBlacklist;
+
+    private SyntheticPack pack;
+    private TagPatternMatcher matcher;
+    private ConfigSnapshot snapshot;
+    private String[] tagIdStrings;
+    private TagKey<?>[] tagKeys;
+    private TagKey<?>[][] itemTagKeys;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        pack = SyntheticPack.generate(42);
+
+        ConfigData config = new ConfigData();
+        config.useBlacklist = useBlacklist;
+        double wildcardShare = ruleMix.equals("wildcard") ? 0.9 : 0.1;
+        for (String rule : pack.rules(SyntheticPack.RULE_COUNT, wildcardShare)) {
+            config.tagList.put(rule, new TagEntry(null, null, null));
+        }
+        for (int i = 0; i < SyntheticPack.ITEM_COUNT; i += 100) {
+            config.itemTags.put(pack.itemIds.get(i).toString(), List.of(new TagEntry("Custom", 0x55FF55, null)));
+        }
+
+        matcher = TagPatternMatcher.compile(config.tagList);
+        snapshot = ConfigSnapshot.of(config);
+
+        tagIdStrings = pack.tagIds.stream().map(Identifier::toString).toArray(String[]::new);
+        tagKeys = pack.tagIds.stream().map(id -> TagKey.of(RegistryKeys.ITEM, id)).toArray(TagKey<?>[]::new);
+        snapshot.buildTable(Arrays.asList(tagKeys).iterator());
+
+        itemTagKeys = new TagKey<?>[SyntheticPack.ITEM_COUNT][];
+        for (int i = 0; i < SyntheticPack.ITEM_COUNT; i++) {
+            int[] tags = pack.itemTags[i];
+            List<TagKey<?>> keys = new ArrayList<>(tags.length);
+            for (int tag : tags) keys.add(tagKeys[tag]);
+            itemTagKeys[i] = keys.toArray(TagKey<?>[]::new);
+        }
+    }
+
+    private int next(int bound) {
+        int i = cursor++;
+        if (cursor >= bound) cursor = 0;
+        return i;
+    }
+
+    @Benchmark
+    public Object findMatchingEntry() {
+        return matcher.find(tagIdStrings[next(tagIdStrings.length)]);
+    }
+
+    @Benchmark
+    public List<ResolvedTag> resolveItem() {
+        int item = next(SyntheticPack.ITEM_COUNT);
+        return snapshot.resolve(pack.itemIds.get(item), Arrays.stream(itemTagKeys[item]), Stream.empty());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    public Object buildTable() {
+        return snapshot.buildTable(Arrays.asList(tagKeys).iterator());
+    }
+}
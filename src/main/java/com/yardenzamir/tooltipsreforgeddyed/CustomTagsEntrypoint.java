@@ -6,28 +6,42 @@ import com.yardenzamir.tooltipsreforgeddyed.component.CustomTagComponent;
 import com.yardenzamir.tooltipsreforgeddyed.component.WaresTradeComponent;
 import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig;
 import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig.ResolvedTag;
+import com.yardenzamir.tooltipsreforgeddyed.diagnostics.TooltipProfiler;
+import com.yardenzamir.tooltipsreforgeddyed.diagnostics.TooltipProfiler.Stage;
+import com.yardenzamir.tooltipsreforgeddyed.diagnostics.TooltipStageEvent;
+import com.yardenzamir.tooltipsreforgeddyed.diagnostics.WorkloadDump;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gui.tooltip.TooltipComponent;
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NbtCompound;
-import net.minecraft.nbt.NbtElement;
 import net.minecraft.registry.Registries;
 import net.minecraft.text.Text;
 import net.minecraft.util.Formatting;
 
 import java.util.List;
+import java.util.Objects;
 
 @EntryPointProvider(slug = "tooltips_reforged")
 public class CustomTagsEntrypoint implements TooltipsReforgeEntrypoint {
 
-    private static final String WARES_NAMESPACE = "wares";
+    private static final int MEMO_SIZE = 4;
+
+    // Components built for the last few hovered stacks, reused while the same stack stays hovered
+    // so their layout caches survive across frames. The components cache layouts in plain
+    // fields, so the memo is only used from the render thread; tooltips built anywhere else get
+    // fresh components.
+    private final HoverMemo[] memo = new HoverMemo[MEMO_SIZE];
+    private int nextMemoSlot;
 
     @Override
     public void appendTooltip(ItemStack stack, List<TooltipComponent> components) {
+        WorkloadDump.recordHover(stack.getItem(), stack.getNbt());
+
         // Check for config errors and notify player
         String error = CustomTagsConfig.getAndClearError();
+        MinecraftClient client = MinecraftClient.getInstance();
         if (error != null) {
-            MinecraftClient client = MinecraftClient.getInstance();
             if (client.player != null) {
                 client.player.sendMessage(
                     Text.literal(error).formatted(Formatting.RED),
@@ -36,50 +50,123 @@ public class CustomTagsEntrypoint implements TooltipsReforgeEntrypoint {
             }
         }
 
-        int insertIndex = Math.min(1, components.size());
+        appendTooltip(stack, client.isOnThread(), components);
+    }
 
-        List<ResolvedTag> tags = CustomTagsConfig.getTagsForItem(stack);
-        if (!tags.isEmpty()) {
-            components.add(insertIndex, new CustomTagComponent(tags));
-            insertIndex++;
+    private void appendTooltip(ItemStack stack, boolean useMemo, List<TooltipComponent> components) {
+        // Most items have no badges and no trade; leave before anything allocates
+        Item item = stack.getItem();
+        NbtCompound nbt = stack.getNbt();
+        int flags = CustomTagsConfig.getItemFlags(item);
+        boolean mayHaveTrade = (flags & CustomTagsConfig.MAY_CARRY_TRADE) != 0 && nbt != null;
+        if ((flags & CustomTagsConfig.MAY_HAVE_BADGES) == 0 && !mayHaveTrade) return;
+
+        TooltipStageEvent event = TooltipProfiler.begin();
+        long start = System.nanoTime();
+
+        int generation = CustomTagsConfig.getGeneration();
+        // Badges only depend on the item, so the NBT is only part of the key when it may hold a trade
+        NbtCompound tradeSource = mayHaveTrade ? nbt : null;
+        // Hashed every hover, since a trade edited in place keeps its compound's identity
+        int nbtHash = tradeSource == null ? 0 : tradeSource.hashCode();
+        HoverMemo hover = useMemo ? findMemo(stack, item, tradeSource, nbtHash, generation) : null;
+        boolean memoHit = hover != null;
+        if (!memoHit) {
+            hover = buildComponents(stack, tradeSource, nbtHash, generation);
+            if (useMemo) {
+                memo[nextMemoSlot] = hover;
+                nextMemoSlot = (nextMemoSlot + 1) % MEMO_SIZE;
+            }
         }
 
-        // Handle Wares mod trade items (below tags)
-        NbtCompound tradeNbt = extractTradeNbt(stack);
-        if (tradeNbt != null) {
-            components.add(insertIndex, WaresTradeComponent.fromNbt(tradeNbt));
+        int insertIndex = Math.min(1, components.size());
+        if (hover.tags != null) {
+            components.add(insertIndex, hover.tags);
+            insertIndex++;
         }
-    }
 
-    private NbtCompound extractTradeNbt(ItemStack stack) {
-        NbtCompound nbt = stack.getNbt();
-        if (nbt == null) return null;
+        // Wares mod trade items (below tags)
+        if (hover.trade != null) {
+            components.add(insertIndex, hover.trade);
+        }
 
-        var itemId = Registries.ITEM.getId(stack.getItem());
-        String namespace = itemId.getNamespace();
-        String path = itemId.getPath();
+        if (TooltipProfiler.end(event, Stage.APPEND_TOOLTIP, start, memoHit)) {
+            TooltipProfiler.commit(event, Stage.APPEND_TOOLTIP, Registries.ITEM.getId(item).toString(),
+                hover.tagCount, CustomTagsConfig.getTagCount(), memoHit);
+        }
+    }
 
-        // Direct wares items: delivery_agreement, sealed_delivery_agreement
-        if (WARES_NAMESPACE.equals(namespace) &&
-            (path.equals("delivery_agreement") || path.equals("sealed_delivery_agreement"))) {
-            if (nbt.contains("requestedItems") && nbt.contains("paymentItems")) {
-                return nbt;
+    private HoverMemo findMemo(ItemStack stack, Item item, NbtCompound nbt, int nbtHash, int generation) {
+        // The same stack with the same NBT compound as last frame is the common case; only
+        // compare contents once either has been swapped out
+        for (HoverMemo entry : memo) {
+            if (entry != null && entry.stack == stack && entry.nbtRef == nbt && entry.nbtHash == nbtHash
+                && entry.generation == generation) {
+                return entry;
             }
         }
-
-        // ptdye trading_transceiver: trade data nested in StoredAgreement.tag
-        if ("ptdye".equals(namespace) && path.equals("trading_transceiver")) {
-            if (nbt.contains("StoredAgreement", NbtElement.COMPOUND_TYPE)) {
-                NbtCompound stored = nbt.getCompound("StoredAgreement");
-                if (stored.contains("tag", NbtElement.COMPOUND_TYPE)) {
-                    NbtCompound tag = stored.getCompound("tag");
-                    if (tag.contains("requestedItems") && tag.contains("paymentItems")) {
-                        return tag;
-                    }
-                }
+        for (HoverMemo entry : memo) {
+            if (entry != null && entry.matches(item, nbt, nbtHash, generation)) {
+                entry.stack = stack;
+                entry.nbtRef = nbt;
+                return entry;
             }
         }
-
         return null;
     }
+
+    /**
+     * @param nbt the stack's NBT if it may hold a trade, otherwise null
+     * @param nbtHash {@code nbt}'s hash, taken once for the hover
+     */
+    private HoverMemo buildComponents(ItemStack stack, NbtCompound nbt, int nbtHash, int generation) {
+        List<ResolvedTag> tags = CustomTagsConfig.getTagsForItem(stack);
+        CustomTagComponent tagComponent = tags.isEmpty() ? null : new CustomTagComponent(tags);
+
+        NbtCompound tradeNbt = CustomTagsConfig.getTradeNbt(stack);
+        WaresTradeComponent tradeComponent = tradeNbt == null ? null : WaresTradeComponent.fromNbt(tradeNbt);
+
+        NbtCompound nbtCopy = nbt == null ? null : nbt.copy();
+        return new HoverMemo(stack, nbt, stack.getItem(), nbtCopy, nbtHash, generation,
+            tagComponent, tradeComponent, tags.size());
+    }
+
+    /**
+     * The components built for one stack. Matched by the identity of the last stack and NBT
+     * compound that used it plus the NBT's hash, so a trade edited in place is rebuilt, falling
+     * back to a copy of the NBT so an equal stack still hits and a hash collision can't hand back
+     * another stack's trade. Only stacks that may carry a trade keep their NBT; badges only
+     * depend on the item, so for every other stack the item alone matches.
+     */
+    private static final class HoverMemo {
+        private ItemStack stack;
+        private NbtCompound nbtRef;
+        private final Item item;
+        private final NbtCompound nbt;
+        private final int nbtHash;
+        private final int generation;
+        private final CustomTagComponent tags;
+        private final WaresTradeComponent trade;
+        private final int tagCount;
+
+        HoverMemo(ItemStack stack, NbtCompound nbtRef, Item item, NbtCompound nbt, int nbtHash, int generation,
+                  CustomTagComponent tags, WaresTradeComponent trade, int tagCount) {
+            this.stack = stack;
+            this.nbtRef = nbtRef;
+            this.item = item;
+            this.nbt = nbt;
+            this.nbtHash = nbtHash;
+            this.generation = generation;
+            this.tags = tags;
+            this.trade = trade;
+            this.tagCount = tagCount;
+        }
+
+        boolean matches(Item item, NbtCompound nbt, int nbtHash, int generation) {
+            return this.item == item
+                && this.generation == generation
+                && this.nbtHash == nbtHash
+                && Objects.equals(this.nbt, nbt);
+        }
+    }
 }
@@ -0,0 +1,123 @@
+package com.yardenzamir.tooltipsreforgeddyed;
+
+import com.yardenzamir.tooltipsreforgeddyed.component.WaresTradeComponent;
+import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.gui.screen.ingame.HandledScreen;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.screen.ScreenHandler;
+import net.minecraft.screen.slot.Slot;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.api.distmarker.OnlyIn;
+import net.minecraftforge.client.event.ScreenEvent;
+import net.minecraftforge.event.TickEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fills the tag-resolution and trade caches for every slot of a container screen on a background
+ * thread, so the first hover over each slot is already warm. The container's contents arrive in
+ * packets after the screen opens, so the slots are scanned on every client tick whose handler
+ * revision has moved since the last scan, and only stacks not warmed yet are queued. Closing or
+ * replacing the screen abandons whatever hasn't been warmed yet.
+ */
+@OnlyIn(Dist.CLIENT)
+final class TooltipWarmer {
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "TooltipsReforgedDyed tooltip warmer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    // Bumped on every screen open and close; a warming pass stops as soon as its epoch is stale
+    private static final AtomicInteger epoch = new AtomicInteger();
+
+    // Client thread only: the screen being warmed, the revision last scanned and what was queued
+    private static HandledScreen<?> screen;
+    private static int scannedRevision;
+    private static final Set<Item> warmedItems = Collections.newSetFromMap(new IdentityHashMap<>());
+    private static final Set<NbtCompound> warmedTrades = new HashSet<>();
+
+    private TooltipWarmer() {}
+
+    static void onScreenInit(ScreenEvent.Init.Post event) {
+        if (!(event.getScreen() instanceof HandledScreen<?> handled)) return;
+        // Init also runs on resize; the same screen keeps what it has already warmed
+        if (handled == screen) return;
+        epoch.incrementAndGet();
+        screen = handled;
+        // Revisions are never negative, so the next tick scans even if nothing has synced yet
+        scannedRevision = -1;
+        warmedItems.clear();
+        warmedTrades.clear();
+    }
+
+    static void onScreenClosing(ScreenEvent.Closing event) {
+        epoch.incrementAndGet();
+        screen = null;
+    }
+
+    static void onClientTick(TickEvent.ClientTickEvent event) {
+        HandledScreen<?> current = screen;
+        if (event.phase != TickEvent.Phase.END || current == null) return;
+        if (MinecraftClient.getInstance().currentScreen != current) {
+            screen = null;
+            return;
+        }
+
+        ScreenHandler handler = current.getScreenHandler();
+        int revision = handler.getRevision();
+        if (revision == scannedRevision) return;
+        scannedRevision = revision;
+
+        List<ItemStack> stacks = collect(handler);
+        if (stacks.isEmpty()) return;
+        int startedAt = epoch.get();
+        WORKER.execute(() -> warm(stacks, startedAt));
+    }
+
+    /**
+     * Copies of the stacks that will get a tooltip component and haven't been queued yet, so the
+     * worker never touches a stack the game may still change. Badges only depend on the item, so
+     * each item is taken once; trades once per distinct NBT.
+     */
+    private static List<ItemStack> collect(ScreenHandler handler) {
+        List<ItemStack> stacks = new ArrayList<>();
+        for (Slot slot : handler.slots) {
+            ItemStack stack = slot.getStack();
+            if (stack.isEmpty()) continue;
+
+            int flags = CustomTagsConfig.getItemFlags(stack.getItem());
+            if ((flags & CustomTagsConfig.MAY_CARRY_TRADE) != 0 && stack.hasNbt()) {
+                if (!warmedTrades.contains(stack.getNbt())) {
+                    ItemStack copy = stack.copy();
+                    warmedTrades.add(copy.getNbt());
+                    stacks.add(copy);
+                }
+            } else if ((flags & CustomTagsConfig.MAY_HAVE_BADGES) != 0 && warmedItems.add(stack.getItem())) {
+                stacks.add(new ItemStack(stack.getItem()));
+            }
+        }
+        return stacks;
+    }
+
+    private static void warm(List<ItemStack> stacks, int startedAt) {
+        for (ItemStack stack : stacks) {
+            if (epoch.get() != startedAt) return;
+            CustomTagsConfig.getTagsForItem(stack);
+            NbtCompound trade = CustomTagsConfig.getTradeNbt(stack);
+            if (trade != null) WaresTradeComponent.fromNbt(trade);
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.yardenzamir.tooltipsreforgeddyed;
 
 import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig;
+import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.javafmlmod.FMLJavaModLoadingContext;
+import net.minecraftforge.fml.loading.FMLEnvironment;
 import net.minecraftforge.fml.loading.FMLPaths;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,6 +16,10 @@ public class TooltipsReforgedDyed {
 
     public TooltipsReforgedDyed() {
         CustomTagsConfig.load(FMLPaths.CONFIGDIR.get().resolve("tooltips_reforged_dyed.json"));
-        LOGGER.info("TooltipsReforgedDyed loaded with {} tag definitions", CustomTagsConfig.getTagCount());
+
+        // Tooltips only exist on the client; a dedicated server must never load those listeners
+        if (FMLEnvironment.dist == Dist.CLIENT) {
+            TooltipsReforgedDyedClient.init(FMLJavaModLoadingContext.get().getModEventBus());
+        }
     }
 }
@@ -0,0 +1,62 @@
+package com.yardenzamir.tooltipsreforgeddyed;
+
+import com.yardenzamir.tooltipsreforgeddyed.component.TagTextWidths;
+import com.yardenzamir.tooltipsreforgeddyed.component.WaresTradeComponent;
+import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig;
+import com.yardenzamir.tooltipsreforgeddyed.diagnostics.DiagnosticsCommand;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.resource.SynchronousResourceReloader;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.api.distmarker.OnlyIn;
+import net.minecraftforge.client.event.RegisterClientCommandsEvent;
+import net.minecraftforge.client.event.RegisterClientReloadListenersEvent;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.TagsUpdatedEvent;
+import net.minecraftforge.eventbus.api.IEventBus;
+import net.minecraftforge.fml.ModList;
+import net.minecraftforge.forgespi.language.IModInfo;
+
+/**
+ * Every listener that touches client-only classes. Only loaded when running on a client, so a
+ * dedicated server never resolves them.
+ */
+@OnlyIn(Dist.CLIENT)
+final class TooltipsReforgedDyedClient {
+    private TooltipsReforgedDyedClient() {}
+
+    static void init(IEventBus modBus) {
+        MinecraftForge.EVENT_BUS.addListener(TooltipsReforgedDyedClient::onTagsUpdated);
+        MinecraftForge.EVENT_BUS.addListener(TooltipsReforgedDyedClient::onRegisterClientCommands);
+        MinecraftForge.EVENT_BUS.addListener(TooltipWarmer::onScreenInit);
+        MinecraftForge.EVENT_BUS.addListener(TooltipWarmer::onScreenClosing);
+        MinecraftForge.EVENT_BUS.addListener(TooltipWarmer::onClientTick);
+        modBus.addListener(TooltipsReforgedDyedClient::onRegisterReloadListeners);
+    }
+
+    private static void onTagsUpdated(TagsUpdatedEvent event) {
+        CustomTagsConfig.invalidateCaches();
+        WaresTradeComponent.clearCache();
+    }
+
+    private static void onRegisterClientCommands(RegisterClientCommandsEvent event) {
+        DiagnosticsCommand.register(event.getDispatcher());
+    }
+
+    private static void onRegisterReloadListeners(RegisterClientReloadListenersEvent event) {
+        event.registerReloadListener((SynchronousResourceReloader) manager -> {
+            WaresTradeComponent.clearCache();
+            TagTextWidths.invalidate();
+            // Queued behind the rest of the reload, so the new language is in place by then
+            MinecraftClient client = MinecraftClient.getInstance();
+            client.send(() -> CustomTagsConfig.reloadDerivedNames(translationSet(client)));
+        });
+    }
+
+    private static String translationSet(MinecraftClient client) {
+        // Forge serves every mod's assets from one pack, so mod versions stand in for their lang files
+        StringBuilder set = new StringBuilder(client.getLanguageManager().getLanguage());
+        for (String pack : client.getResourcePackManager().getEnabledNames()) set.append('|').append(pack);
+        for (IModInfo mod : ModList.get().getMods()) set.append('|').append(mod.getModId()).append('@').append(mod.getVersion());
+        return set.toString();
+    }
+}
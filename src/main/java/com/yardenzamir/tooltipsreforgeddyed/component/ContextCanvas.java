@@ -0,0 +1,120 @@
+package com.yardenzamir.tooltipsreforgeddyed.component;
+
+import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig.ResolvedTag;
+import net.minecraft.client.font.TextRenderer;
+import net.minecraft.client.gui.DrawContext;
+import net.minecraft.client.render.LightmapTextureManager;
+import net.minecraft.client.render.RenderLayer;
+import net.minecraft.client.render.VertexConsumer;
+import net.minecraft.client.util.math.MatrixStack;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.api.distmarker.OnlyIn;
+import org.joml.Matrix4f;
+
+/**
+ * The {@link TooltipCanvas} for the frame being drawn. Components only measure and draw on the
+ * render thread, so one instance is rebound to each frame's font and context instead of a new
+ * one being made per draw.
+ */
+@OnlyIn(Dist.CLIENT)
+final class ContextCanvas implements TooltipCanvas {
+    private static final ContextCanvas RENDER_THREAD = new ContextCanvas();
+
+    private TextRenderer textRenderer;
+    private DrawContext context;
+
+    // Set by beginQuads and beginScaledText for the run that follows
+    private VertexConsumer quads;
+    private Matrix4f matrix;
+    private Matrix4f textMatrix;
+
+    private ContextCanvas() {}
+
+    static ContextCanvas of(TextRenderer textRenderer, DrawContext context) {
+        RENDER_THREAD.textRenderer = textRenderer;
+        RENDER_THREAD.context = context;
+        return RENDER_THREAD;
+    }
+
+    /**
+     * For measuring outside a draw, such as in {@code getWidth}; nothing may be drawn with it.
+     */
+    static ContextCanvas measuring(TextRenderer textRenderer) {
+        return of(textRenderer, null);
+    }
+
+    @Override
+    public int fontHeight() {
+        return textRenderer.fontHeight;
+    }
+
+    @Override
+    public int textWidth(String text) {
+        return textRenderer.getWidth(text);
+    }
+
+    @Override
+    public int textWidth(ResolvedTag tag) {
+        return TagTextWidths.getWidth(textRenderer, tag);
+    }
+
+    @Override
+    public void beginQuads() {
+        matrix = context.getMatrices().peek().getPositionMatrix();
+        quads = context.getVertexConsumers().getBuffer(RenderLayer.getGui());
+    }
+
+    @Override
+    public void quad(int x1, int y1, int x2, int y2, int color) {
+        int alpha = (color >> 24) & 0xFF;
+        int red = (color >> 16) & 0xFF;
+        int green = (color >> 8) & 0xFF;
+        int blue = color & 0xFF;
+        quads.vertex(matrix, x1, y1, 0).color(red, green, blue, alpha).next();
+        quads.vertex(matrix, x1, y2, 0).color(red, green, blue, alpha).next();
+        quads.vertex(matrix, x2, y2, 0).color(red, green, blue, alpha).next();
+        quads.vertex(matrix, x2, y1, 0).color(red, green, blue, alpha).next();
+    }
+
+    @Override
+    public void beginScaledText(float scale) {
+        MatrixStack matrices = context.getMatrices();
+        matrices.push();
+        matrices.scale(scale, scale, 1.0f);
+        textMatrix = matrices.peek().getPositionMatrix();
+    }
+
+    @Override
+    public void scaledText(String text, float x, float y, int color) {
+        textRenderer.draw(text, x, y, color, true, textMatrix, context.getVertexConsumers(),
+            TextRenderer.TextLayerType.NORMAL, 0, LightmapTextureManager.MAX_LIGHT_COORDINATE);
+    }
+
+    @Override
+    public void endScaledText() {
+        context.getMatrices().pop();
+    }
+
+    @Override
+    public void submit() {
+        context.draw();
+    }
+
+    @Override
+    public void fill(int x1, int y1, int x2, int y2, int color) {
+        context.fill(x1, y1, x2, y2, color);
+    }
+
+    @Override
+    public void text(String text, int x, int y, int color) {
+        context.drawText(textRenderer, text, x, y, color, true);
+    }
+
+    @Override
+    public void item(WaresTradeComponent.TradeItem item, int x, int y) {
+        ItemStack stack = item.stack();
+        context.drawItem(stack, x, y);
+        context.drawItemInSlot(textRenderer, stack, x, y);
+    }
+}
@@ -1,6 +1,9 @@
 package com.yardenzamir.tooltipsreforgeddyed.component;
 
 import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig.ResolvedTag;
+import com.yardenzamir.tooltipsreforgeddyed.diagnostics.TooltipProfiler;
+import com.yardenzamir.tooltipsreforgeddyed.diagnostics.TooltipProfiler.Stage;
+import com.yardenzamir.tooltipsreforgeddyed.diagnostics.TooltipStageEvent;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.font.TextRenderer;
 import net.minecraft.client.gui.DrawContext;
@@ -12,6 +15,8 @@ import org.joml.Matrix4f;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
 
 @OnlyIn(Dist.CLIENT)
 public class CustomTagComponent implements TooltipComponent {
@@ -21,11 +26,15 @@ public class CustomTagComponent implements TooltipComponent {
     private static final int ROW_GAP = 2;
     private static final int SCREEN_EDGE_MARGIN = 8;
 
+    private static final LongAdder BADGES_DRAWN = new LongAdder();
+    private static final LongAdder DRAW_SUBMISSIONS = new LongAdder();
+
     private final List<ResolvedTag> tags;
 
     // Layout cache
     private List<List<ResolvedTag>> rows;
     private int layoutMaxWidth = -1;
+    private int layoutGeneration = -1;
     private int cachedHeight;
     private int cachedWidth;
 
@@ -33,17 +42,37 @@ public class CustomTagComponent implements TooltipComponent {
         this.tags = tags;
     }
 
-    private void calculateLayout(TextRenderer textRenderer, int maxWidth) {
-        if (rows != null && layoutMaxWidth == maxWidth) return;
+    private void calculateLayout(TooltipCanvas canvas, int maxWidth) {
+        int generation = TagTextWidths.generation();
+        if (rows != null && layoutMaxWidth == maxWidth && layoutGeneration == generation) return;
+
+        TooltipStageEvent event = TooltipProfiler.begin();
+        long start = System.nanoTime();
 
         layoutMaxWidth = maxWidth;
-        rows = new ArrayList<>();
+        layoutGeneration = generation;
+        Layout layout = calculateLayout(tags, tag -> getScaledTagWidth(canvas, tag), getScaledRowHeight(canvas), maxWidth);
+        rows = layout.rows();
+        cachedWidth = layout.width();
+        cachedHeight = layout.height();
+
+        if (TooltipProfiler.end(event, Stage.LAYOUT_TAGS, start)) {
+            TooltipProfiler.commit(event, Stage.LAYOUT_TAGS, "", tags.size(), 0, false);
+        }
+    }
+
+    /**
+     * Wraps tags into rows no wider than {@code maxWidth}. Pure function of its arguments, so it
+     * can be measured without a game window or font.
+     */
+    static Layout calculateLayout(List<ResolvedTag> tags, ToIntFunction<ResolvedTag> tagWidths, int rowHeight, int maxWidth) {
+        List<List<ResolvedTag>> rows = new ArrayList<>();
         List<ResolvedTag> currentRow = new ArrayList<>();
         int currentRowWidth = 0;
         int maxRowWidth = 0;
 
         for (ResolvedTag tag : tags) {
-            int tagWidth = getScaledTagWidth(textRenderer, tag);
+            int tagWidth = tagWidths.applyAsInt(tag);
 
             if (!currentRow.isEmpty() && currentRowWidth + TAG_GAP + tagWidth > maxWidth) {
                 rows.add(currentRow);
@@ -64,9 +93,8 @@ public class CustomTagComponent implements TooltipComponent {
             maxRowWidth = Math.max(maxRowWidth, currentRowWidth);
         }
 
-        int rowHeight = getScaledRowHeight(textRenderer);
-        cachedHeight = rows.isEmpty() ? 0 : rows.size() * rowHeight + (rows.size() - 1) * ROW_GAP + 2;
-        cachedWidth = maxRowWidth;
+        int height = rows.isEmpty() ? 0 : rows.size() * rowHeight + (rows.size() - 1) * ROW_GAP + 2;
+        return new Layout(rows, maxRowWidth, height);
     }
 
     private int getDefaultMaxWidth() {
@@ -74,24 +102,23 @@ public class CustomTagComponent implements TooltipComponent {
         return client.getWindow().getScaledWidth() / 2;
     }
 
-    private int getScaledTagWidth(TextRenderer textRenderer, ResolvedTag tag) {
-        return (int) (textRenderer.getWidth(tag.text()) * SCALE) + TAG_PADDING * 2;
+    private int getScaledTagWidth(TooltipCanvas canvas, ResolvedTag tag) {
+        return (int) (canvas.textWidth(tag) * SCALE) + TAG_PADDING * 2;
     }
 
-    private int getScaledRowHeight(TextRenderer textRenderer) {
-        return (int) (textRenderer.fontHeight * SCALE) + 2;
+    private int getScaledRowHeight(TooltipCanvas canvas) {
+        return (int) (canvas.fontHeight() * SCALE) + 2;
     }
 
     @Override
     public int getHeight() {
-        TextRenderer textRenderer = MinecraftClient.getInstance().textRenderer;
-        calculateLayout(textRenderer, getDefaultMaxWidth());
+        calculateLayout(ContextCanvas.measuring(MinecraftClient.getInstance().textRenderer), getDefaultMaxWidth());
         return cachedHeight;
     }
 
     @Override
     public int getWidth(TextRenderer textRenderer) {
-        calculateLayout(textRenderer, getDefaultMaxWidth());
+        calculateLayout(ContextCanvas.measuring(textRenderer), getDefaultMaxWidth());
         return cachedWidth;
     }
 
@@ -109,55 +136,82 @@ public class CustomTagComponent implements TooltipComponent {
         int availableWidth = screenWidth - x - SCREEN_EDGE_MARGIN;
         int maxWidth = Math.min(getDefaultMaxWidth(), availableWidth);
 
+        draw(ContextCanvas.of(textRenderer, context), x, y, maxWidth);
+    }
+
+    /**
+     * Everything {@link #drawItems} does once it knows how wide it may be, on any canvas.
+     */
+    void draw(TooltipCanvas canvas, int x, int y, int maxWidth) {
+        TooltipStageEvent event = TooltipProfiler.begin();
+        long start = System.nanoTime();
+
         // Recalculate layout if width constraint changed
-        calculateLayout(textRenderer, maxWidth);
+        calculateLayout(canvas, maxWidth);
 
-        int rowHeight = getScaledRowHeight(textRenderer);
-        int currentY = y + 1;
+        int rowHeight = getScaledRowHeight(canvas);
 
+        // Pass 1: every badge background and frame goes into one GUI buffer, submitted once
+        canvas.beginQuads();
+        int badges = 0;
+        int currentY = y + 1;
         for (List<ResolvedTag> row : rows) {
             int currentX = x;
-
             for (ResolvedTag tag : row) {
-                int scaledTextWidth = (int) (textRenderer.getWidth(tag.text()) * SCALE);
-                int tagWidth = scaledTextWidth + TAG_PADDING * 2;
-                int tagHeight = rowHeight;
-
-                int bgColor = darkenColor(tag.argbColor(), 0.85f);
-                int frameColor = darkenColor(tag.argbColor(), 0.7f);
-
-                // Background
-                context.fill(currentX, currentY, currentX + tagWidth, currentY + tagHeight, bgColor);
-
-                // Frame
-                drawFrame(context, currentX, currentY, tagWidth, tagHeight, frameColor);
-
-                // Scaled text
-                context.getMatrices().push();
-                context.getMatrices().translate(currentX + TAG_PADDING, currentY + 1, 0);
-                context.getMatrices().scale(SCALE, SCALE, 1.0f);
-                context.drawText(textRenderer, tag.text(), 0, 0, 0xFFFFFFFF, true);
-                context.getMatrices().pop();
-
+                int tagWidth = getScaledTagWidth(canvas, tag);
+                canvas.quad(currentX, currentY, currentX + tagWidth, currentY + rowHeight, tag.backgroundColor());
+                drawFrame(canvas, currentX, currentY, tagWidth, rowHeight, tag.frameColor());
                 currentX += tagWidth + TAG_GAP;
+                badges++;
             }
+            currentY += rowHeight + ROW_GAP;
+        }
+        submit(canvas);
 
+        // Pass 2: all text under a single scaled matrix, positions divided back into text space
+        canvas.beginScaledText(SCALE);
+        currentY = y + 1;
+        for (List<ResolvedTag> row : rows) {
+            int currentX = x;
+            for (ResolvedTag tag : row) {
+                canvas.scaledText(tag.text(), (currentX + TAG_PADDING) / SCALE, (currentY + 1) / SCALE, 0xFFFFFFFF);
+                currentX += getScaledTagWidth(canvas, tag) + TAG_GAP;
+            }
             currentY += rowHeight + ROW_GAP;
         }
+        canvas.endScaledText();
+        submit(canvas);
+
+        BADGES_DRAWN.add(badges);
+
+        if (TooltipProfiler.end(event, Stage.DRAW_TAGS, start)) {
+            TooltipProfiler.commit(event, Stage.DRAW_TAGS, "", badges, 0, false);
+        }
+    }
+
+    /**
+     * Badges drawn so far. The unbatched path submitted six draws per badge (background, four
+     * frame edges and the text); compare with {@link #getDrawSubmissions()}.
+     */
+    public static long getBadgesDrawn() {
+        return BADGES_DRAWN.sum();
     }
 
-    private static int darkenColor(int color, float factor) {
-        int alpha = (color >> 24) & 0xFF;
-        int red = (int) (((color >> 16) & 0xFF) * factor);
-        int green = (int) (((color >> 8) & 0xFF) * factor);
-        int blue = (int) ((color & 0xFF) * factor);
-        return (alpha << 24) | (red << 16) | (green << 8) | blue;
+    public static long getDrawSubmissions() {
+        return DRAW_SUBMISSIONS.sum();
     }
 
-    private static void drawFrame(DrawContext context, int x, int y, int width, int height, int color) {
-        context.fill(x, y, x + width, y + 1, color);
-        context.fill(x, y + height - 1, x + width, y + height, color);
-        context.fill(x, y, x + 1, y + height, color);
-        context.fill(x + width - 1, y, x + width, y + height, color);
+    private static void submit(TooltipCanvas canvas) {
+        canvas.submit();
+        DRAW_SUBMISSIONS.increment();
     }
+
+    private static void drawFrame(TooltipCanvas canvas, int x, int y, int width, int height, int color) {
+        canvas.quad(x, y, x + width, y + 1, color);
+        canvas.quad(x, y + height - 1, x + width, y + height, color);
+        canvas.quad(x, y, x + 1, y + height, color);
+        canvas.quad(x + width - 1, y, x + width, y + height, color);
+    }
+
+    record Layout(List<List<ResolvedTag>> rows, int width, int height) {}
 }
@@ -0,0 +1,44 @@
+package com.yardenzamir.tooltipsreforgeddyed.component;
+
+import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig.ResolvedTag;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.font.TextRenderer;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.api.distmarker.OnlyIn;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * Measures badge text for {@link CustomTagComponent}. Widths in the game's own font are stored
+ * on the interned {@link ResolvedTag} flyweights themselves, so each badge is measured once and
+ * a lookup is a field read rather than a map probe. Text drawn with any other font, such as one
+ * an item supplies for its tooltip, is measured as asked and never stored.
+ * <p>
+ * The generation counter changes only on resource reload, when the game's font may have
+ * changed, so widths and layouts built from old measurements can tell they need redoing.
+ */
+@OnlyIn(Dist.CLIENT)
+public final class TagTextWidths {
+    private static volatile int generation;
+
+    // Created once so measuring doesn't allocate a capturing lambda per call
+    private static final ToIntFunction<String> MEASURE = text -> MinecraftClient.getInstance().textRenderer.getWidth(text);
+
+    private TagTextWidths() {}
+
+    static int getWidth(TextRenderer textRenderer, ResolvedTag tag) {
+        if (textRenderer != MinecraftClient.getInstance().textRenderer) return textRenderer.getWidth(tag.text());
+        return tag.textWidth(generation, MEASURE);
+    }
+
+    static int generation() {
+        return generation;
+    }
+
+    /**
+     * Forgets every measured width. Called on resource reload, since fonts may have changed.
+     */
+    public static synchronized void invalidate() {
+        generation++;
+    }
+}
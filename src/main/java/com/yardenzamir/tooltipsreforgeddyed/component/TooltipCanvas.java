@@ -0,0 +1,55 @@
+package com.yardenzamir.tooltipsreforgeddyed.component;
+
+import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig.ResolvedTag;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.api.distmarker.OnlyIn;
+
+/**
+ * What the tooltip components measure and draw with. In game that is the font and
+ * {@code DrawContext} of the frame being drawn ({@link ContextCanvas}); the allocation tests
+ * pass one that draws nothing, so they walk the same per-frame code the game runs.
+ */
+@OnlyIn(Dist.CLIENT)
+interface TooltipCanvas {
+    int fontHeight();
+
+    int textWidth(String text);
+
+    /**
+     * Unscaled width of a badge's text, stored only for the game's own font.
+     */
+    int textWidth(ResolvedTag tag);
+
+    /**
+     * Starts a run of {@link #quad} calls, all going into one GUI buffer until {@link #submit}.
+     */
+    void beginQuads();
+
+    void quad(int x1, int y1, int x2, int y2, int color);
+
+    /**
+     * Starts a run of {@link #scaledText} calls drawn under one matrix scaled by {@code scale}.
+     */
+    void beginScaledText(float scale);
+
+    /**
+     * Draws text with a shadow at a position already divided into the scaled space.
+     */
+    void scaledText(String text, float x, float y, int color);
+
+    void endScaledText();
+
+    /**
+     * Draws everything buffered so far in one submission.
+     */
+    void submit();
+
+    void fill(int x1, int y1, int x2, int y2, int color);
+
+    void text(String text, int x, int y, int color);
+
+    /**
+     * Draws a trade line's icon with its count.
+     */
+    void item(WaresTradeComponent.TradeItem item, int x, int y);
+}
@@ -0,0 +1,150 @@
+package com.yardenzamir.tooltipsreforgeddyed.component;
+
+import com.yardenzamir.tooltipsreforgeddyed.diagnostics.TooltipProfiler;
+import com.yardenzamir.tooltipsreforgeddyed.diagnostics.TooltipProfiler.Stage;
+import com.yardenzamir.tooltipsreforgeddyed.diagnostics.TooltipStageEvent;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtList;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.api.distmarker.OnlyIn;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded LRU of parsed trades, so hovering the same agreement doesn't re-parse its item lists
+ * and rebuild its stacks every frame. Keyed by a structural hash of the two item lists; entries
+ * hold their own copies of the lists, so later edits to the hovered stack's NBT can never return
+ * the wrong trade. Each entry also remembers the identity of the hovered lists it last matched:
+ * probing those again only takes the hash, and the copies are compared only for lists the entry
+ * hasn't seen, so two different lists that share a hash still can't hand back each other's trade.
+ */
+@OnlyIn(Dist.CLIENT)
+final class TradeComponentCache {
+    private static final int MAX_ENTRIES = 64;
+
+    private final Map<Key, WaresTradeComponent> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, WaresTradeComponent> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    // Reused for every lookup and only touched while holding the lock, so a hit allocates nothing
+    private final Key probe = new Key(null, null, 0);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    WaresTradeComponent get(NbtCompound tradeNbt, Function<NbtCompound, WaresTradeComponent> parser) {
+        TooltipStageEvent event = TooltipProfiler.begin();
+        long start = System.nanoTime();
+
+        NbtList requested = tradeNbt.getList("requestedItems", NbtElement.COMPOUND_TYPE);
+        NbtList payment = tradeNbt.getList("paymentItems", NbtElement.COMPOUND_TYPE);
+        int hash = Key.hash(requested, payment);
+
+        WaresTradeComponent cached;
+        synchronized (entries) {
+            probe.set(requested, payment, hash);
+            cached = entries.get(probe);
+            // The probe doesn't keep the hovered stack's NBT alive; only a matched entry does
+            probe.set(null, null, 0);
+        }
+        boolean hit = cached != null;
+        WaresTradeComponent result = hit ? cached : parseAndStore(requested, payment, hash, parser);
+        (hit ? hits : misses).increment();
+
+        if (TooltipProfiler.end(event, Stage.PARSE_TRADE, start, hit)) {
+            // The trade compound isn't tied to an item here; the enclosing appendTooltip event has it
+            TooltipProfiler.commit(event, Stage.PARSE_TRADE, "", requested.size() + payment.size(), 0, hit);
+        }
+        return result;
+    }
+
+    private WaresTradeComponent parseAndStore(NbtList requested, NbtList payment, int hash,
+                                              Function<NbtCompound, WaresTradeComponent> parser) {
+        // Parse from private copies so the component never aliases the hovered stack's NBT
+        Key stored = new Key(requested.copy(), payment.copy(), hash);
+        stored.seenRequested = requested;
+        stored.seenPayment = payment;
+        NbtCompound owned = new NbtCompound();
+        owned.put("requestedItems", stored.requested);
+        owned.put("paymentItems", stored.payment);
+        WaresTradeComponent parsed = parser.apply(owned);
+        synchronized (entries) {
+            entries.put(stored, parsed);
+        }
+        return parsed;
+    }
+
+    void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * The lists and hash of a stored key are never changed; only the cache's probe is re-pointed
+     * with {@link #set}. A stored key's seen lists move to whichever hovered lists last matched it.
+     */
+    private static final class Key {
+        NbtList requested;
+        NbtList payment;
+        int hash;
+        NbtList seenRequested;
+        NbtList seenPayment;
+
+        Key(NbtList requested, NbtList payment, int hash) {
+            set(requested, payment, hash);
+        }
+
+        static int hash(NbtList requested, NbtList payment) {
+            return 31 * requested.hashCode() + payment.hashCode();
+        }
+
+        void set(NbtList requested, NbtList payment, int hash) {
+            this.requested = requested;
+            this.payment = payment;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key other)) return false;
+            if (hash != other.hash) return false;
+            if (sameIdentity(this, other) || sameIdentity(other, this)) return true;
+            if (!requested.equals(other.requested) || !payment.equals(other.payment)) return false;
+            // Only ever called under the cache's lock, with one side the probe
+            remember(this, other);
+            remember(other, this);
+            return true;
+        }
+
+        private static boolean sameIdentity(Key stored, Key probe) {
+            return stored.seenRequested != null
+                && stored.seenRequested == probe.requested && stored.seenPayment == probe.payment;
+        }
+
+        private static void remember(Key stored, Key probe) {
+            if (stored.seenRequested == null) return;
+            stored.seenRequested = probe.requested;
+            stored.seenPayment = probe.payment;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
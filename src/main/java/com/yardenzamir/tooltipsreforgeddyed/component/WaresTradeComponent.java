@@ -1,11 +1,16 @@
 package com.yardenzamir.tooltipsreforgeddyed.component;
 
+import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig;
+import com.yardenzamir.tooltipsreforgeddyed.diagnostics.TooltipProfiler;
+import com.yardenzamir.tooltipsreforgeddyed.diagnostics.TooltipProfiler.Stage;
+import com.yardenzamir.tooltipsreforgeddyed.diagnostics.TooltipStageEvent;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.font.TextRenderer;
 import net.minecraft.client.gui.DrawContext;
 import net.minecraft.client.gui.tooltip.TooltipComponent;
 import net.minecraft.client.render.VertexConsumerProvider;
 import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.nbt.NbtElement;
 import net.minecraft.nbt.NbtList;
@@ -15,8 +20,11 @@ import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.api.distmarker.OnlyIn;
 import org.joml.Matrix4f;
 
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Predicate;
 
 @OnlyIn(Dist.CLIENT)
 public class WaresTradeComponent implements TooltipComponent {
@@ -25,72 +33,163 @@ public class WaresTradeComponent implements TooltipComponent {
     private static final int SECTION_GAP = 6;
     private static final int ARROW_WIDTH = 12;
     private static final int VERTICAL_PADDING = 2;
+    private static final int SUMMARY_GAP = 2;
+    private static final int SUMMARY_COLOR = 0xFFAAAAAA;
 
-    private final List<ItemStack> requestedItems;
-    private final List<ItemStack> paymentItems;
+    private static final TradeComponentCache CACHE = new TradeComponentCache();
 
+    private final List<TradeItem> requestedItems;
+    private final List<TradeItem> paymentItems;
+
+    // Layout cache
+    private Layout layout;
+    private int layoutMaxWidth = -1;
+    private int layoutMaxIcons = -1;
+    // "+N more" for the cached layout, or null when everything fits
+    private String summaryText;
+
+    /**
+     * A trade from stacks that are already built. They are drawn as given, one icon per stack,
+     * without merging.
+     */
     public WaresTradeComponent(List<ItemStack> requestedItems, List<ItemStack> paymentItems) {
-        this.requestedItems = requestedItems;
-        this.paymentItems = paymentItems;
+        this(requestedItems.stream().map(TradeItem::new).toArray(TradeItem[]::new),
+            paymentItems.stream().map(TradeItem::new).toArray(TradeItem[]::new));
+    }
+
+    private WaresTradeComponent(TradeItem[] requestedItems, TradeItem[] paymentItems) {
+        this.requestedItems = List.of(requestedItems);
+        this.paymentItems = List.of(paymentItems);
     }
 
+    /**
+     * Returns the component for a trade compound, parsing it only the first time a given trade
+     * is seen. The returned component is shared and must not be modified.
+     */
     public static WaresTradeComponent fromNbt(NbtCompound nbt) {
-        List<ItemStack> requested = parseItemList(nbt.getList("requestedItems", NbtElement.COMPOUND_TYPE));
-        List<ItemStack> payment = parseItemList(nbt.getList("paymentItems", NbtElement.COMPOUND_TYPE));
+        return CACHE.get(nbt, WaresTradeComponent::parse);
+    }
+
+    /**
+     * Forgets every parsed trade. Called when registries or resources reload, since cached
+     * stacks hold on to the items they were built from.
+     */
+    public static void clearCache() {
+        CACHE.clear();
+    }
+
+    public static long getCacheHits() {
+        return CACHE.hits();
+    }
+
+    public static long getCacheMisses() {
+        return CACHE.misses();
+    }
+
+    private static WaresTradeComponent parse(NbtCompound nbt) {
+        return parse(nbt, id -> Registries.ITEM.get(id) != Items.AIR);
+    }
+
+    /**
+     * Parses a trade without touching any {@link ItemStack}: entries are grouped by item id and
+     * tag in one pass, and each group's stack is only built the first time it is drawn.
+     */
+    static WaresTradeComponent parse(NbtCompound nbt, Predicate<Identifier> isKnownItem) {
+        TradeItem[] requested = parseItemList(nbt.getList("requestedItems", NbtElement.COMPOUND_TYPE), isKnownItem);
+        TradeItem[] payment = parseItemList(nbt.getList("paymentItems", NbtElement.COMPOUND_TYPE), isKnownItem);
         return new WaresTradeComponent(requested, payment);
     }
 
-    private static List<ItemStack> parseItemList(NbtList list) {
-        List<ItemStack> items = new ArrayList<>();
+    private static TradeItem[] parseItemList(NbtList list, Predicate<Identifier> isKnownItem) {
+        // Entries that would stack together (same item, equal tag) share a group; insertion order is kept
+        Map<GroupKey, TradeItem> groups = new LinkedHashMap<>();
         for (int i = 0; i < list.size(); i++) {
             NbtCompound itemNbt = list.getCompound(i);
-            ItemStack stack = parseItemStack(itemNbt);
-            if (!stack.isEmpty()) {
-                mergeOrAdd(items, stack);
-            }
+            int count = itemNbt.contains("Count") ? itemNbt.getInt("Count") : 1;
+            if (count <= 0) continue;
+
+            Identifier itemId = Identifier.tryParse(itemNbt.getString("id"));
+            if (itemId == null || !isKnownItem.test(itemId)) continue;
+
+            NbtCompound tag = itemNbt.contains("tag", NbtElement.COMPOUND_TYPE) ? itemNbt.getCompound("tag") : null;
+            TradeItem group = groups.computeIfAbsent(new GroupKey(itemId, tag), key -> new TradeItem(key.id(), key.tag()));
+            group.count += count;
         }
-        return items;
+        return groups.values().toArray(TradeItem[]::new);
     }
 
-    private static ItemStack parseItemStack(NbtCompound nbt) {
-        String id = nbt.getString("id");
-        int count = nbt.contains("Count") ? nbt.getInt("Count") : 1;
-
-        Identifier itemId = Identifier.tryParse(id);
-        if (itemId == null) return ItemStack.EMPTY;
+    private Layout layout(TooltipCanvas canvas, int maxWidth) {
+        int maxIcons = CustomTagsConfig.getMaxTradeIcons();
+        if (layout == null || layoutMaxWidth != maxWidth || layoutMaxIcons != maxIcons) {
+            layoutMaxWidth = maxWidth;
+            layoutMaxIcons = maxIcons;
+            layout = calculateLayout(requestedItems.size(), paymentItems.size(), maxIcons, maxWidth,
+                canvas.fontHeight(), hidden -> canvas.textWidth(summary(hidden)));
+            // Built once here rather than concatenated again every frame
+            summaryText = layout.hidden() > 0 ? summary(layout.hidden()) : null;
+        }
+        return layout;
+    }
 
-        var item = Registries.ITEM.getOrEmpty(itemId);
-        if (item.isEmpty()) return ItemStack.EMPTY;
+    /**
+     * Splits the icon cap between the two sides and wraps each side into a grid no wider than
+     * {@code maxWidth} allows. Pure function of its arguments, so it can be measured without a
+     * game window or font.
+     * <p>
+     * Each side gets at least half the cap when it needs it, and whatever the other side leaves
+     * over. Entries past the cap are summed into one "+N more" line under the grids.
+     */
+    static Layout calculateLayout(int requested, int payment, int maxIcons, int maxWidth, int lineHeight,
+                                  IntUnaryOperator summaryWidth) {
+        int paymentShown = Math.min(payment, Math.max(maxIcons / 2, maxIcons - requested));
+        int requestedShown = Math.min(requested, maxIcons - paymentShown);
+        int hidden = requested - requestedShown + payment - paymentShown;
 
-        ItemStack stack = new ItemStack(item.get(), count);
+        // Columns available to both grids together once the arrow and gaps are taken out
+        int gridWidth = maxWidth - ARROW_WIDTH - SECTION_GAP * 2;
+        int totalColumns = Math.max(2, (gridWidth + ITEM_GAP) / (ITEM_SIZE + ITEM_GAP));
+        int paymentColumns = Math.max(1, Math.min(paymentShown, totalColumns / 2));
+        int requestedColumns = Math.max(1, Math.min(requestedShown, totalColumns - paymentColumns));
+        // Give columns the requested side can't use back to the payment side
+        paymentColumns = Math.max(1, Math.min(paymentShown, totalColumns - Math.min(requestedShown, requestedColumns)));
 
-        if (nbt.contains("tag", NbtElement.COMPOUND_TYPE)) {
-            stack.setNbt(nbt.getCompound("tag"));
+        int rows = Math.max(rows(requestedShown, requestedColumns), rows(paymentShown, paymentColumns));
+        int width = sectionWidth(requestedShown, requestedColumns) + SECTION_GAP + ARROW_WIDTH + SECTION_GAP
+            + sectionWidth(paymentShown, paymentColumns);
+        int height = Math.max(1, rows) * (ITEM_SIZE + ITEM_GAP) - ITEM_GAP + VERTICAL_PADDING * 2;
+        if (hidden > 0) {
+            width = Math.max(width, summaryWidth.applyAsInt(hidden));
+            height += lineHeight + SUMMARY_GAP;
         }
+        return new Layout(requestedShown, requestedColumns, paymentShown, paymentColumns, hidden, width, height);
+    }
 
-        return stack;
+    private static int rows(int shown, int columns) {
+        return (shown + columns - 1) / columns;
     }
 
-    private static void mergeOrAdd(List<ItemStack> items, ItemStack newStack) {
-        for (ItemStack existing : items) {
-            if (ItemStack.canCombine(existing, newStack)) {
-                existing.setCount(existing.getCount() + newStack.getCount());
-                return;
-            }
-        }
-        items.add(newStack.copy());
+    private static int sectionWidth(int shown, int columns) {
+        int used = Math.min(shown, columns);
+        return used == 0 ? 0 : used * ITEM_SIZE + (used - 1) * ITEM_GAP;
+    }
+
+    private static String summary(int hidden) {
+        return "+" + hidden + " more";
+    }
+
+    private int getDefaultMaxWidth() {
+        return MinecraftClient.getInstance().getWindow().getScaledWidth() / 2;
     }
 
     @Override
     public int getHeight() {
-        return ITEM_SIZE + VERTICAL_PADDING * 2;
+        return layout(ContextCanvas.measuring(MinecraftClient.getInstance().textRenderer), getDefaultMaxWidth()).height();
     }
 
     @Override
     public int getWidth(TextRenderer textRenderer) {
-        int requestedWidth = requestedItems.size() * ITEM_SIZE + Math.max(0, requestedItems.size() - 1) * ITEM_GAP;
-        int paymentWidth = paymentItems.size() * ITEM_SIZE + Math.max(0, paymentItems.size() - 1) * ITEM_GAP;
-        return requestedWidth + SECTION_GAP + ARROW_WIDTH + SECTION_GAP + paymentWidth;
+        // Only the group counts matter here; no stack is built until something is drawn
+        return layout(ContextCanvas.measuring(textRenderer), getDefaultMaxWidth()).width();
     }
 
     @Override
@@ -99,48 +198,101 @@ public class WaresTradeComponent implements TooltipComponent {
 
     @Override
     public void drawItems(TextRenderer textRenderer, int x, int y, DrawContext context) {
-        int currentX = x;
-        int itemY = y + VERTICAL_PADDING;
+        // The width getWidth and getHeight measured at, so the layout they cached is reused and
+        // the grid fills exactly the space the tooltip made for it
+        draw(ContextCanvas.of(textRenderer, context), x, y, getDefaultMaxWidth());
+    }
 
-        // Draw requested items (what player gives)
-        for (ItemStack stack : requestedItems) {
-            drawItemWithCount(context, textRenderer, stack, currentX, itemY);
-            currentX += ITEM_SIZE + ITEM_GAP;
-        }
+    /**
+     * Everything {@link #drawItems} does once it knows how wide it may be, on any canvas.
+     */
+    void draw(TooltipCanvas canvas, int x, int y, int maxWidth) {
+        TooltipStageEvent event = TooltipProfiler.begin();
+        long start = System.nanoTime();
 
-        if (!requestedItems.isEmpty()) {
-            currentX -= ITEM_GAP;
-        }
-        currentX += SECTION_GAP;
+        Layout layout = layout(canvas, maxWidth);
+
+        int itemY = y + VERTICAL_PADDING;
+
+        // Draw requested items (what player gives); only the visible ones are ever touched, so
+        // the cost per frame is bounded by the cap, not by the size of the agreement
+        drawGrid(canvas, requestedItems, layout.requestedShown(), layout.requestedColumns(), x, itemY);
+        int currentX = x + sectionWidth(layout.requestedShown(), layout.requestedColumns()) + SECTION_GAP;
 
         // Draw arrow
         int arrowY = itemY + ITEM_SIZE / 2;
-        drawArrow(context, currentX, arrowY, ARROW_WIDTH);
+        drawArrow(canvas, currentX, arrowY, ARROW_WIDTH);
         currentX += ARROW_WIDTH + SECTION_GAP;
 
         // Draw payment items (what player receives)
-        for (ItemStack stack : paymentItems) {
-            drawItemWithCount(context, textRenderer, stack, currentX, itemY);
-            currentX += ITEM_SIZE + ITEM_GAP;
+        drawGrid(canvas, paymentItems, layout.paymentShown(), layout.paymentColumns(), currentX, itemY);
+
+        if (summaryText != null) {
+            canvas.text(summaryText, x, y + layout.height() - canvas.fontHeight(), SUMMARY_COLOR);
+        }
+
+        if (TooltipProfiler.end(event, Stage.DRAW_TRADE, start)) {
+            TooltipProfiler.commit(event, Stage.DRAW_TRADE, "", layout.requestedShown() + layout.paymentShown(), 0, false);
         }
     }
 
-    private void drawItemWithCount(DrawContext context, TextRenderer textRenderer, ItemStack stack, int x, int y) {
-        context.drawItem(stack, x, y);
-        context.drawItemInSlot(textRenderer, stack, x, y);
+    private void drawGrid(TooltipCanvas canvas, List<TradeItem> items, int shown, int columns, int x, int y) {
+        for (int i = 0; i < shown; i++) {
+            int itemX = x + (i % columns) * (ITEM_SIZE + ITEM_GAP);
+            int itemY = y + (i / columns) * (ITEM_SIZE + ITEM_GAP);
+            canvas.item(items.get(i), itemX, itemY);
+        }
     }
 
-    private void drawArrow(DrawContext context, int x, int y, int width) {
+    private void drawArrow(TooltipCanvas canvas, int x, int y, int width) {
         int color = 0xFFAAAAAA;
         int arrowHeadSize = 3;
 
         // Arrow shaft
-        context.fill(x, y - 1, x + width - arrowHeadSize, y + 1, color);
+        canvas.fill(x, y - 1, x + width - arrowHeadSize, y + 1, color);
 
         // Arrow head
         for (int i = 0; i < arrowHeadSize; i++) {
             int headX = x + width - arrowHeadSize + i;
-            context.fill(headX, y - (arrowHeadSize - i), headX + 1, y + (arrowHeadSize - i) + 1, color);
+            canvas.fill(headX, y - (arrowHeadSize - i), headX + 1, y + (arrowHeadSize - i) + 1, color);
+        }
+    }
+
+    private record GroupKey(Identifier id, NbtCompound tag) {}
+
+    record Layout(int requestedShown, int requestedColumns, int paymentShown, int paymentColumns,
+                  int hidden, int width, int height) {}
+
+    /**
+     * One merged line of a trade. The stack is materialized lazily and then reused every frame.
+     */
+    static final class TradeItem {
+        private final Identifier id;
+        private final NbtCompound tag;
+        private int count;
+        private ItemStack stack;
+
+        private TradeItem(Identifier id, NbtCompound tag) {
+            this.id = id;
+            this.tag = tag;
+        }
+
+        private TradeItem(ItemStack stack) {
+            this(Registries.ITEM.getId(stack.getItem()), stack.getNbt());
+            this.count = stack.getCount();
+            this.stack = stack;
+        }
+
+        ItemStack stack() {
+            if (stack == null) {
+                ItemStack built = new ItemStack(Registries.ITEM.get(id), count);
+                if (tag != null) {
+                    // Copy so the stack can't write back into the cached trade NBT
+                    built.setNbt(tag.copy());
+                }
+                stack = built;
+            }
+            return stack;
         }
     }
 }
@@ -0,0 +1,127 @@
+package com.yardenzamir.tooltipsreforgeddyed.config;
+
+import net.minecraft.item.Item;
+import net.minecraft.util.Identifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reverse lookup from badges to the items that show them, for recipe-viewer search. Keyed both
+ * by the badge text (case-insensitive) and by the id of the tag the badge comes from.
+ * <p>
+ * Built once per config and tag reload from every registered item, read-only afterwards. Keys
+ * are kept sorted, so a prefix query is a binary search plus a walk over the matching range.
+ */
+public final class BadgeIndex {
+    static final BadgeIndex EMPTY = new BadgeIndex(new Item[0], Map.of(), Map.of());
+
+    // Items by raw id at build time; postings hold indices into this array
+    private final Item[] items;
+    private final Postings byText;
+    private final Postings byTagId;
+
+    private BadgeIndex(Item[] items, Map<String, ? extends Collection<Integer>> byText,
+                       Map<String, ? extends Collection<Integer>> byTagId) {
+        this.items = items;
+        this.byText = new Postings(byText);
+        this.byTagId = new Postings(byTagId);
+    }
+
+    static BadgeIndex build(Item[] items, Map<String, ? extends Collection<Integer>> byText,
+                            Map<String, ? extends Collection<Integer>> byTagId) {
+        return new BadgeIndex(items, byText, byTagId);
+    }
+
+    static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Items showing a badge with exactly this text, ignoring case.
+     */
+    public List<Item> itemsWithBadge(String text) {
+        return toItems(byText.exact(normalize(text)));
+    }
+
+    /**
+     * Items showing any badge whose text starts with {@code prefix}, ignoring case. Meant to be
+     * called per keystroke.
+     */
+    public List<Item> itemsWithBadgePrefix(String prefix) {
+        return toItems(byText.prefix(normalize(prefix)));
+    }
+
+    /**
+     * Items showing a badge that comes from this item or block tag.
+     */
+    public List<Item> itemsWithTag(Identifier tagId) {
+        return toItems(byTagId.exact(tagId.toString()));
+    }
+
+    /**
+     * Items showing a badge from any tag whose id starts with {@code prefix}, e.g. {@code "forge:ores/"}.
+     */
+    public List<Item> itemsWithTagPrefix(String prefix) {
+        return toItems(byTagId.prefix(prefix));
+    }
+
+    /**
+     * Distinct badge texts in the index, lower-cased and sorted. Handy for autocompletion.
+     */
+    public List<String> badgeTexts() {
+        return List.of(byText.keys);
+    }
+
+    private List<Item> toItems(BitSet matches) {
+        if (matches == null || matches.isEmpty()) return List.of();
+        List<Item> result = new ArrayList<>(matches.cardinality());
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            result.add(items[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Sorted keys, each with the raw ids of its items.
+     */
+    private static final class Postings {
+        private final String[] keys;
+        private final BitSet[] itemIds;
+
+        Postings(Map<String, ? extends Collection<Integer>> source) {
+            keys = source.keySet().toArray(String[]::new);
+            Arrays.sort(keys);
+            itemIds = new BitSet[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                BitSet ids = new BitSet();
+                for (int id : source.get(keys[i])) ids.set(id);
+                itemIds[i] = ids;
+            }
+        }
+
+        BitSet exact(String key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index >= 0 ? itemIds[index] : null;
+        }
+
+        BitSet prefix(String prefix) {
+            int index = Arrays.binarySearch(keys, prefix);
+            if (index < 0) index = -index - 1;
+            if (index >= keys.length || !keys[index].startsWith(prefix)) return null;
+
+            // A single matching key is the common case once a few characters are typed
+            if (index + 1 >= keys.length || !keys[index + 1].startsWith(prefix)) return itemIds[index];
+            BitSet union = new BitSet();
+            for (; index < keys.length && keys[index].startsWith(prefix); index++) {
+                union.or(itemIds[index]);
+            }
+            return union;
+        }
+    }
+}
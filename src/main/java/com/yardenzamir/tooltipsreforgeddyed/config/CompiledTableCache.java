@@ -0,0 +1,202 @@
+package com.yardenzamir.tooltipsreforgeddyed.config;
+
+import com.yardenzamir.tooltipsreforgeddyed.TooltipsReforgedDyed;
+import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig.ResolvedTag;
+import net.minecraft.registry.tag.TagKey;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Keeps the visible part of the last compiled {@link TagResolutionTable} in a small binary file
+ * next to the config, so a warm start with the same config and the same game tags can skip
+ * matching every tag against the rules.
+ * <p>
+ * The file is keyed by a hash of the raw config bytes and a hash of every loaded tag together
+ * with the {@linkplain DerivedNames#translationSet translations} derived names came from. If
+ * either differs, or the file is missing or damaged, the table is compiled as usual and the file
+ * rewritten in the background.
+ * <pre>
+ * int magic, int version, long configHash, long tagsHash, int count,
+ * count x (utf8 tagId, utf8 text, int argbColor)
+ * </pre>
+ * Strings are an unsigned short length followed by UTF-8 bytes. Tags missing from the file are
+ * hidden.
+ */
+final class CompiledTableCache {
+    private static final int MAGIC = 0x54524454; // "TRDT"
+    private static final int VERSION = 2;
+    // magic, version, configHash, tagsHash
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8;
+
+    private static volatile Path file;
+
+    private CompiledTableCache() {}
+
+    static void useFile(Path path) {
+        file = path;
+    }
+
+    /**
+     * 64-bit FNV-1a. 0 is reserved for "no config file", which is never cached.
+     */
+    static long hash(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    static long hashTags(List<TagKey<?>> tags, String translationSet) {
+        // Tag iteration order isn't guaranteed between launches, so each tag is hashed on its own
+        // and the results summed. Deriving names here would cost as much as the build it skips
+        long sum = hash(translationSet.getBytes(StandardCharsets.UTF_8));
+        for (TagKey<?> tag : tags) {
+            long hash = 0xcbf29ce484222325L;
+            hash = hashChars(hash, tag.registry().getValue().getNamespace());
+            hash = hashChars(hash, tag.registry().getValue().getPath());
+            hash = hashChars(hash, tag.id().getNamespace());
+            hash = hashChars(hash, tag.id().getPath());
+            sum += mix(hash);
+        }
+        return sum == 0 ? 1 : sum;
+    }
+
+    private static long hashChars(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        // Separator, so "a" + "bc" and "ab" + "c" differ
+        hash ^= 0xFFFF;
+        return hash * 0x100000001b3L;
+    }
+
+    private static long mix(long hash) {
+        // SplitMix64 finalizer; spreads FNV's weak high bits before the sum
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+
+    /**
+     * The cached visible tags by id if the file matches both hashes. The file is read into heap
+     * buffers rather than mapped, since a mapping stays open until it is garbage collected and on
+     * Windows that blocks {@link #saveAsync} from replacing the file.
+     */
+    static Optional<Map<String, ResolvedTag>> load(long configHash, long tagsHash) {
+        Path path = file;
+        if (path == null || configHash == 0) return Optional.empty();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // A stale file is usually rejected by its header alone, so the body is only read after it
+            ByteBuffer header = readFully(channel, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION
+                || header.getLong() != configHash || header.getLong() != tagsHash) {
+                return Optional.empty();
+            }
+            ByteBuffer body = readFully(channel, Math.toIntExact(channel.size() - HEADER_BYTES));
+            int count = body.getInt();
+            Map<String, ResolvedTag> visible = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                String tagId = readString(body);
+                String text = readString(body);
+                visible.put(tagId, new ResolvedTag(text, body.getInt()));
+            }
+            return Optional.of(visible);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException | ArithmeticException e) {
+            TooltipsReforgedDyed.LOGGER.warn("Ignoring unreadable tag cache {}: {}", path, e.toString());
+            return Optional.empty();
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, int bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(bytes);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) throw new EOFException("Tag cache ends early");
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Writes the table in the background. Each save goes through its own temporary file, so a
+     * reader never sees a half-written cache and two saves racing after quick reloads can't
+     * write into the same file; whichever finishes last wins whole.
+     */
+    static void saveAsync(long configHash, long tagsHash, TagResolutionTable table) {
+        Path path = file;
+        if (path == null || configHash == 0) return;
+        ForkJoinPool.commonPool().execute(() -> {
+            Path temp;
+            try {
+                temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName() + ".", ".tmp");
+            } catch (IOException e) {
+                TooltipsReforgedDyed.LOGGER.warn("Could not write tag cache {}", path, e);
+                return;
+            }
+            Map<String, ResolvedTag> visible = table.visibleById();
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(configHash);
+                out.writeLong(tagsHash);
+                out.writeInt(visible.size());
+                for (Map.Entry<String, ResolvedTag> entry : visible.entrySet()) {
+                    writeString(out, entry.getKey());
+                    writeString(out, entry.getValue().text());
+                    out.writeInt(entry.getValue().argbColor());
+                }
+            } catch (IOException e) {
+                TooltipsReforgedDyed.LOGGER.warn("Could not write tag cache {}", path, e);
+                deleteQuietly(temp);
+                return;
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                TooltipsReforgedDyed.LOGGER.warn("Could not replace tag cache {}", path, e);
+                deleteQuietly(temp);
+            }
+        });
+    }
+
+    private static void deleteQuietly(Path temp) {
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException ignored) {
+            // Only a stray temporary file left behind
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) throw new IOException("String too long for tag cache: " + bytes.length + " bytes");
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,163 @@
+package com.yardenzamir.tooltipsreforgeddyed.config;
+
+import com.yardenzamir.tooltipsreforgeddyed.TooltipsReforgedDyed;
+import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig.ConfigData;
+import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig.TagEntry;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * The main config file plus every {@code *.json} rule file in the directory next to it, each
+ * parsed on its own so a change re-reads only the file that changed.
+ * <p>
+ * Files are merged in a fixed order: the main file first, then the directory by file name.
+ * {@code itemTags} lists for the same item are concatenated, a {@code tagList} or
+ * {@code tradeSources} key defined again in a later file replaces the earlier definition, and {@code useBlacklist} and
+ * {@code maxTradeIcons} are only read from the main file. Not thread-safe; only the loader and
+ * watcher threads use it, one after the other.
+ */
+final class ConfigFiles {
+    private final Path mainFile;
+    private final Path directory;
+
+    // Last version of each file that parsed; a file that fails to parse keeps its previous entry
+    private final Map<Path, Loaded> files = new HashMap<>();
+    // Why each file that currently fails to parse does; cleared once it parses or is deleted
+    private final Map<Path, String> errors = new TreeMap<>();
+
+    private record Loaded(ConfigData data, long hash) {}
+
+    ConfigFiles(Path mainFile, Path directory) {
+        this.mainFile = mainFile.toAbsolutePath();
+        this.directory = directory.toAbsolutePath();
+    }
+
+    static boolean isRuleFile(Path path) {
+        return path.getFileName().toString().endsWith(".json");
+    }
+
+    Path mainFile() {
+        return mainFile;
+    }
+
+    Path directory() {
+        return directory;
+    }
+
+    /**
+     * Reads every file. Returns one message per file that could not be parsed.
+     */
+    List<String> readAll() {
+        List<Path> paths = new ArrayList<>();
+        paths.add(mainFile);
+        paths.add(directory);
+        return read(paths);
+    }
+
+    /**
+     * Re-reads the given files; the rule directory stands for every file in it. Deleted files
+     * drop out of the merged config. Returns one message per file that currently can't be
+     * parsed, including files that failed earlier and weren't re-read this time.
+     */
+    List<String> read(Collection<Path> changed) {
+        for (Path path : changed) {
+            if (path.equals(directory)) {
+                files.keySet().removeIf(file -> directory.equals(file.getParent()) && !Files.exists(file));
+                errors.keySet().removeIf(file -> directory.equals(file.getParent()) && !Files.exists(file));
+                for (Path file : listDirectory()) readFile(file);
+            } else {
+                readFile(path.toAbsolutePath());
+            }
+        }
+        return List.copyOf(errors.values());
+    }
+
+    private List<Path> listDirectory() {
+        if (!Files.isDirectory(directory)) return List.of();
+        try (Stream<Path> listing = Files.list(directory)) {
+            return listing.filter(ConfigFiles::isRuleFile).filter(Files::isRegularFile).sorted().toList();
+        } catch (IOException e) {
+            TooltipsReforgedDyed.LOGGER.warn("Could not list {}", directory, e);
+            return List.of();
+        }
+    }
+
+    private void readFile(Path path) {
+        if (!Files.exists(path)) {
+            files.remove(path);
+            errors.remove(path);
+            return;
+        }
+        try {
+            // Read once up front: the bytes are both parsed and hashed to key the tag table cache
+            byte[] bytes = Files.readAllBytes(path);
+            ConfigData data = ConfigParser.parse(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8));
+            files.put(path, new Loaded(data, CompiledTableCache.hash(bytes)));
+            errors.remove(path);
+        } catch (Exception e) {
+            if (e instanceof ConfigParser.ConfigParseException) {
+                TooltipsReforgedDyed.LOGGER.error("Failed to load custom tags config {}: {}", path, e.getMessage());
+            } else {
+                TooltipsReforgedDyed.LOGGER.error("Failed to load custom tags config {}", path, e);
+            }
+            errors.put(path, path.getFileName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * All loaded files merged into one config.
+     */
+    ConfigData merged() {
+        ConfigData merged = new ConfigData();
+        for (Path path : orderedPaths()) {
+            ConfigData data = files.get(path).data();
+            if (path.equals(mainFile)) {
+                merged.useBlacklist = data.useBlacklist;
+                merged.maxTradeIcons = data.maxTradeIcons;
+            }
+            data.itemTags.forEach((itemId, entries) -> merged.itemTags.merge(itemId, entries, (a, b) -> {
+                List<TagEntry> both = new ArrayList<>(a);
+                both.addAll(b);
+                return both;
+            }));
+            merged.tagList.putAll(data.tagList);
+            if (data.tradeSources != null) {
+                if (merged.tradeSources == null) merged.tradeSources = new LinkedHashMap<>();
+                merged.tradeSources.putAll(data.tradeSources);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Hash over every loaded file in merge order; see {@link CompiledTableCache#hash}.
+     */
+    long contentHash() {
+        long hash = 17;
+        for (Path path : orderedPaths()) {
+            hash = hash * 31 + path.getFileName().hashCode();
+            hash = hash * 31 + files.get(path).hash();
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    private List<Path> orderedPaths() {
+        List<Path> ordered = new ArrayList<>(files.size());
+        if (files.containsKey(mainFile)) ordered.add(mainFile);
+        files.keySet().stream().filter(path -> !path.equals(mainFile)).sorted().forEach(ordered::add);
+        return ordered;
+    }
+}
@@ -0,0 +1,221 @@
+package com.yardenzamir.tooltipsreforgeddyed.config;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.yardenzamir.tooltipsreforgeddyed.TooltipsReforgedDyed;
+import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig.ConfigData;
+import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig.TagEntry;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Streaming parser for the config file. Reads tokens straight into {@link ConfigData} without
+ * reflection, and reports every problem with the line and column it was found at.
+ */
+final class ConfigParser {
+    // JsonReader only exposes its position through toString(): "JsonReader at line 3 column 7 path $.x"
+    private static final Pattern LOCATION = Pattern.compile("line (\\d+) column (\\d+)");
+
+    private final JsonReader reader;
+
+    private ConfigParser(Reader in) {
+        this.reader = new JsonReader(in);
+        // Same leniency the old Gson-based loading had, so existing files with comments still load
+        this.reader.setLenient(true);
+    }
+
+    static ConfigData parse(Reader in) throws ConfigParseException {
+        ConfigParser parser = new ConfigParser(in);
+        try {
+            return parser.readConfig();
+        } catch (ConfigParseException e) {
+            throw e;
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            // Syntax errors from JsonReader already carry a location in their message
+            throw new ConfigParseException(e.getMessage(), e);
+        }
+    }
+
+    private ConfigData readConfig() throws IOException, ConfigParseException {
+        ConfigData config = new ConfigData();
+        if (reader.peek() == JsonToken.END_DOCUMENT) return config;
+
+        expect(JsonToken.BEGIN_OBJECT, "the config to be an object");
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                // null leaves the default, as it did when Gson filled in the fields
+                case "useBlacklist" -> {
+                    if (!skipNull()) config.useBlacklist = readBoolean(name);
+                }
+                case "maxTradeIcons" -> {
+                    if (!skipNull()) config.maxTradeIcons = readPositiveInt(name);
+                }
+                case "itemTags" -> readItemTags(config);
+                case "tagList" -> readTagList(config);
+                case "tradeSources" -> readTradeSources(config);
+                default -> skipUnknown(name);
+            }
+        }
+        reader.endObject();
+        // Lenient mode would happily read a second top-level value; a stray one means a broken edit
+        if (reader.peek() != JsonToken.END_DOCUMENT) {
+            throw new ConfigParseException("Expected the end of the file after the config object but found "
+                + describe(reader.peek()) + location());
+        }
+        return config;
+    }
+
+    private void readItemTags(ConfigData config) throws IOException, ConfigParseException {
+        if (skipNull()) return;
+        expect(JsonToken.BEGIN_OBJECT, "'itemTags' to be an object of item id -> list of tags");
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String itemId = reader.nextName();
+            if (skipNull()) continue;
+            expect(JsonToken.BEGIN_ARRAY, "the tags for '" + itemId + "' to be a list");
+            List<TagEntry> entries = new ArrayList<>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                TagEntry entry = readTagEntry(itemId);
+                if (entry != null) entries.add(entry);
+            }
+            reader.endArray();
+            config.itemTags.put(itemId, entries);
+        }
+        reader.endObject();
+    }
+
+    private void readTagList(ConfigData config) throws IOException, ConfigParseException {
+        if (skipNull()) return;
+        expect(JsonToken.BEGIN_OBJECT, "'tagList' to be an object of tag id or pattern -> tag");
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String pattern = reader.nextName();
+            TagEntry entry = readTagEntry(pattern);
+            if (entry != null) config.tagList.put(pattern, entry);
+        }
+        reader.endObject();
+    }
+
+    private void readTradeSources(ConfigData config) throws IOException, ConfigParseException {
+        if (skipNull()) return;
+        expect(JsonToken.BEGIN_OBJECT, "'tradeSources' to be an object of item id -> NBT path");
+        config.tradeSources = new LinkedHashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String itemId = reader.nextName();
+            // A null path is kept so building the snapshot reports it instead of dropping it quietly
+            config.tradeSources.put(itemId, readString(itemId));
+        }
+        reader.endObject();
+    }
+
+    private TagEntry readTagEntry(String owner) throws IOException, ConfigParseException {
+        if (skipNull()) return null;
+        expect(JsonToken.BEGIN_OBJECT, "each tag under '" + owner + "' to be an object");
+        String text = null;
+        Integer color = null;
+        Boolean hidden = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case "text" -> text = readString(name);
+                case "color" -> color = readColor();
+                case "hidden" -> hidden = skipNull() ? null : readBoolean(name);
+                default -> skipUnknown(name);
+            }
+        }
+        reader.endObject();
+        return new TagEntry(text, color, hidden);
+    }
+
+    private boolean readBoolean(String name) throws IOException, ConfigParseException {
+        expect(JsonToken.BOOLEAN, "'" + name + "' to be true or false");
+        return reader.nextBoolean();
+    }
+
+    private int readPositiveInt(String name) throws IOException, ConfigParseException {
+        expect(JsonToken.NUMBER, "'" + name + "' to be a number");
+        String location = location();
+        double value = reader.nextDouble();
+        if (value != Math.rint(value) || value < 1 || value > Integer.MAX_VALUE) {
+            throw new ConfigParseException("'" + name + "' must be a whole number of at least 1" + location);
+        }
+        return (int) value;
+    }
+
+    private String readString(String name) throws IOException, ConfigParseException {
+        if (skipNull()) return null;
+        expect(JsonToken.STRING, "'" + name + "' to be a string");
+        return reader.nextString();
+    }
+
+    /**
+     * Any whole number that fits in 32 bits, signed or not, so colors written with alpha such as
+     * 0xFFFF5555 keep loading. Only the RGB bits are used; badges are always opaque.
+     */
+    private Integer readColor() throws IOException, ConfigParseException {
+        if (skipNull()) return null;
+        expect(JsonToken.NUMBER, "'color' to be a number, e.g. 16733525 for 0xFF5555");
+        String location = location();
+        double value = reader.nextDouble();
+        if (value != Math.rint(value) || value < Integer.MIN_VALUE || value > 0xFFFFFFFFL) {
+            throw new ConfigParseException("'color' must be a whole number, e.g. 16733525 for 0xFF5555" + location);
+        }
+        return (int) (long) value & 0xFFFFFF;
+    }
+
+    private boolean skipNull() throws IOException {
+        if (reader.peek() != JsonToken.NULL) return false;
+        reader.nextNull();
+        return true;
+    }
+
+    private void skipUnknown(String name) throws IOException {
+        TooltipsReforgedDyed.LOGGER.warn("Ignoring unknown config key '{}'{}", name, location());
+        reader.skipValue();
+    }
+
+    private void expect(JsonToken token, String what) throws IOException, ConfigParseException {
+        JsonToken actual = reader.peek();
+        if (actual != token) {
+            throw new ConfigParseException("Expected " + what + " but found " + describe(actual) + location());
+        }
+    }
+
+    private String location() {
+        Matcher m = LOCATION.matcher(reader.toString());
+        return m.find() ? " at line " + m.group(1) + ", column " + m.group(2) : "";
+    }
+
+    private static String describe(JsonToken token) {
+        return switch (token) {
+            case BEGIN_OBJECT -> "an object";
+            case BEGIN_ARRAY -> "a list";
+            case STRING -> "a string";
+            case NUMBER -> "a number";
+            case BOOLEAN -> "true/false";
+            case NULL -> "null";
+            default -> "the end of the " + (token == JsonToken.END_DOCUMENT ? "file" : "block");
+        };
+    }
+
+    static final class ConfigParseException extends Exception {
+        ConfigParseException(String message) {
+            super(message);
+        }
+
+        ConfigParseException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
@@ -0,0 +1,639 @@
+package com.yardenzamir.tooltipsreforgeddyed.config;
+
+import com.yardenzamir.tooltipsreforgeddyed.TooltipsReforgedDyed;
+import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig.ConfigData;
+import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig.ResolvedTag;
+import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig.TagEntry;
+import com.yardenzamir.tooltipsreforgeddyed.diagnostics.TooltipProfiler;
+import com.yardenzamir.tooltipsreforgeddyed.diagnostics.TooltipProfiler.Stage;
+import com.yardenzamir.tooltipsreforgeddyed.diagnostics.TooltipStageEvent;
+import net.minecraft.item.BlockItem;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.registry.Registries;
+import net.minecraft.registry.tag.TagKey;
+import net.minecraft.util.Identifier;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * One published version of the config together with everything compiled from it. The config
+ * part is deeply immutable; the only mutable state is the per-item and per-tag-set caches, which
+ * are concurrent maps whose values are immutable lists, and the lazily built tag table, which is read-only once
+ * published. Snapshots are replaced wholesale, never modified, so readers on any thread can use
+ * one without locking.
+ */
+final class ConfigSnapshot {
+    // Both declared before EMPTY, which already needs them while the class initializes
+    private static final AtomicInteger GENERATIONS = new AtomicInteger();
+    // Used when no config file lists tradeSources
+    static final Map<String, String> DEFAULT_TRADE_SOURCES = Map.of(
+        "wares:delivery_agreement", "",
+        "wares:sealed_delivery_agreement", "",
+        "ptdye:trading_transceiver", "StoredAgreement.tag"
+    );
+    static final ConfigSnapshot EMPTY = of(new ConfigData());
+
+    // Builds tables off the client thread, one snapshot at a time
+    private static final ExecutorService BUILDER = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "TooltipsReforgedDyed table builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final boolean useBlacklist;
+    private final Map<String, List<TagEntry>> itemTags;
+    private final Map<String, TagEntry> tagList;
+    private final ItemTagRules itemRules;
+    private final TagPatternMatcher matcher;
+    private final int tagCount;
+    private final int maxTradeIcons;
+    // Item id -> NBT path to the trade compound, already split
+    private final Map<String, String[]> tradeSources;
+    // Hash of the raw config file, 0 if there is none; keys the persisted tag table
+    private final long contentHash;
+    // Entries left out because they can't be used, one message each
+    private final List<String> problems;
+
+    // Resolved badges per item. Only depends on the item's tags and the config, never on the stack.
+    // Values are canonical, so every item with the same badges points at one shared list
+    private final Map<Item, List<ResolvedTag>> itemCache = new ConcurrentHashMap<>();
+    // Resolved badges per distinct tag set, so every item with the same tags and direct entries
+    // (every plank, every ore) is resolved once and the rest only build the key
+    private final Map<TagSet, List<ResolvedTag>> resolvedBySet = new ConcurrentHashMap<>();
+    private final Map<List<ResolvedTag>, List<ResolvedTag>> canonicalLists = new ConcurrentHashMap<>();
+    private final Map<ResolvedTag, ResolvedTag> canonicalTags = new ConcurrentHashMap<>();
+    private volatile TagResolutionTable table;
+    // CompiledTableCache#hashTags of the tags the table was built from; 0 if it can't be persisted
+    private volatile long tableTagsHash;
+    private volatile ItemTable itemTable;
+    private volatile BadgeIndex badgeIndex = BadgeIndex.EMPTY;
+    // Answers lookups until the tag table is built
+    private final TagResolutionTable liveTable;
+    private final AtomicBoolean prepareQueued = new AtomicBoolean();
+
+    // Unique per snapshot, so anything derived from a snapshot can tell when it has been replaced
+    private final int generation = GENERATIONS.incrementAndGet();
+
+    private ConfigSnapshot(boolean useBlacklist, Map<String, List<TagEntry>> itemTags, Map<String, TagEntry> tagList,
+                           ItemTagRules itemRules, TagPatternMatcher matcher, int tagCount, int maxTradeIcons,
+                           Map<String, String[]> tradeSources, long contentHash, List<String> problems) {
+        this.useBlacklist = useBlacklist;
+        this.itemTags = itemTags;
+        this.tagList = tagList;
+        this.itemRules = itemRules;
+        this.matcher = matcher;
+        this.tagCount = tagCount;
+        this.maxTradeIcons = maxTradeIcons;
+        this.tradeSources = tradeSources;
+        this.contentHash = contentHash;
+        this.problems = problems;
+        this.liveTable = TagResolutionTable.live(matcher, useBlacklist);
+    }
+
+    static ConfigSnapshot of(ConfigData config) {
+        return of(config, 0);
+    }
+
+    /**
+     * @param contentHash {@link CompiledTableCache#hash} of the file {@code config} was read from
+     */
+    static ConfigSnapshot of(ConfigData config, long contentHash) {
+        Map<String, List<TagEntry>> itemTags = new LinkedHashMap<>();
+        if (config.itemTags != null) {
+            config.itemTags.forEach((id, entries) -> {
+                if (id == null || entries == null) return;
+                itemTags.put(id, entries.stream().filter(Objects::nonNull).toList());
+            });
+        }
+        Map<String, TagEntry> tagList = config.tagList != null ? config.tagList : Map.of();
+        Map<String, String[]> tradeSources = new HashMap<>();
+        List<String> problems = new ArrayList<>();
+        (config.tradeSources != null ? config.tradeSources : DEFAULT_TRADE_SOURCES).forEach((itemId, path) -> {
+            if (itemId == null) return;
+            // "" is the item's own NBT; anything else blank is a mistake, not a request for that
+            if (path == null || (!path.isEmpty() && path.isBlank())) {
+                problems.add("tradeSources: '" + itemId + "' needs an NBT path, or \"\" for the item's own NBT");
+                return;
+            }
+            tradeSources.put(itemId, Arrays.stream(path.split("\\.")).filter(key -> !key.isEmpty()).toArray(String[]::new));
+        });
+        return new ConfigSnapshot(
+            config.useBlacklist,
+            // Ordered copies: declaration order decides which wildcard wins and how entries stack
+            Collections.unmodifiableMap(itemTags),
+            Collections.unmodifiableMap(new LinkedHashMap<>(tagList)),
+            ItemTagRules.compile(itemTags),
+            TagPatternMatcher.compile(tagList),
+            itemTags.size() + tagList.size(),
+            config.maxTradeIcons,
+            Map.copyOf(tradeSources),
+            contentHash,
+            List.copyOf(problems)
+        );
+    }
+
+    /**
+     * Same config and compiled matchers, empty caches and no tag or flag table. Used when the
+     * game's tags change.
+     */
+    ConfigSnapshot withFreshCaches() {
+        return new ConfigSnapshot(useBlacklist, itemTags, tagList, itemRules, matcher, tagCount, maxTradeIcons, tradeSources,
+            contentHash, problems);
+    }
+
+    /**
+     * Fills this fresh snapshot's caches with every tag table entry and item resolution from
+     * {@code previous} that the config changes between the two can't have affected, so a reload
+     * of one rule file only re-resolves what that file touches. Switching blacklist mode changes
+     * every tag, so then nothing is carried over.
+     */
+    ConfigSnapshot inheritCaches(ConfigSnapshot previous) {
+        TagResolutionTable previousTable = previous.table;
+        if (previousTable == null || previous.useBlacklist != useBlacklist) return this;
+
+        // Any tag whose resolution may differ matches at least one added, removed or edited pattern
+        Map<String, TagEntry> changedPatterns = new HashMap<>();
+        changedKeys(previous.tagList, tagList).forEach(pattern ->
+            changedPatterns.put(pattern, tagList.getOrDefault(pattern, previous.tagList.get(pattern))));
+        // Same for items: any item whose direct entries may differ matches a changed itemTags key
+        Map<String, List<TagEntry>> changedItemKeys = new HashMap<>();
+        changedKeys(previous.itemTags, itemTags).forEach(key -> changedItemKeys.put(key, List.of()));
+        ItemTagRules changedItems = ItemTagRules.compile(changedItemKeys);
+
+        TagPatternMatcher changedMatcher = TagPatternMatcher.compile(changedPatterns);
+        Set<Identifier> changedTagIds = new HashSet<>();
+        table = previousTable.rebuild(matcher, useBlacklist, tagId -> changedMatcher.find(tagId) != null, changedTagIds);
+        // Same tags, new config: the file is keyed by the old config, so save the table under the new one
+        tableTagsHash = previous.tableTagsHash;
+        if (tableTagsHash != 0 && contentHash != 0 && contentHash != previous.contentHash) {
+            CompiledTableCache.saveAsync(contentHash, tableTagsHash, table);
+        }
+
+        previous.resolvedBySet.forEach((set, tags) -> {
+            if (!set.touches(changedTagIds)) resolvedBySet.put(set, canonical(tags));
+        });
+        int[] dropped = new int[1];
+        previous.itemCache.forEach((item, tags) -> {
+            if (changedItems.matches(Registries.ITEM.getId(item))
+                || Stream.concat(item.getRegistryEntry().streamTags(), blockTags(item)).anyMatch(tag -> changedTagIds.contains(tag.id()))) {
+                dropped[0]++;
+                return;
+            }
+            itemCache.put(item, canonical(tags));
+        });
+        TooltipsReforgedDyed.LOGGER.debug("Config change touched {} patterns, {} item entries and {} tag ids; kept {} cached items and {} tag sets, dropped {} items",
+            changedPatterns.size(), changedItemKeys.size(), changedTagIds.size(), itemCache.size(), resolvedBySet.size(), dropped[0]);
+        return this;
+    }
+
+    private static Set<String> changedKeys(Map<String, ?> before, Map<String, ?> after) {
+        Set<String> changed = new HashSet<>();
+        before.forEach((key, value) -> {
+            if (!after.containsKey(key) || !Objects.equals(value, after.get(key))) changed.add(key);
+        });
+        after.keySet().forEach(key -> {
+            if (!before.containsKey(key)) changed.add(key);
+        });
+
+        // Wildcards apply in declaration order, so moving one can change what any of them
+        // matches. Added and removed ones are already in the set; only a reorder of the ones
+        // both versions share needs catching, and then every wildcard counts as changed
+        if (!wildcardsIn(before, after).equals(wildcardsIn(after, before))) {
+            before.keySet().stream().filter(ConfigSnapshot::isWildcard).forEach(changed::add);
+            after.keySet().stream().filter(ConfigSnapshot::isWildcard).forEach(changed::add);
+        }
+        return changed;
+    }
+
+    /**
+     * The wildcard keys of {@code map} that {@code other} also has, in {@code map}'s order.
+     */
+    private static List<String> wildcardsIn(Map<String, ?> map, Map<String, ?> other) {
+        return map.keySet().stream().filter(key -> isWildcard(key) && other.containsKey(key)).toList();
+    }
+
+    private static boolean isWildcard(String key) {
+        return key != null && key.indexOf('*') >= 0;
+    }
+
+    /**
+     * Config entries that were skipped because they can't be used, as messages for the player.
+     */
+    List<String> problems() {
+        return problems;
+    }
+
+    int tagCount() {
+        return tagCount;
+    }
+
+    int maxTradeIcons() {
+        return maxTradeIcons;
+    }
+
+    int generation() {
+        return generation;
+    }
+
+    List<ResolvedTag> tagsFor(ItemStack stack) {
+        TooltipStageEvent event = TooltipProfiler.begin();
+        long start = System.nanoTime();
+
+        Item item = stack.getItem();
+        List<ResolvedTag> result = itemCache.get(item);
+        boolean hit = result != null;
+        if (!hit) {
+            // Two threads may race to resolve the same item or set; both produce equal lists, so either wins
+            TagSet set = TagSet.of(directEntries(item), stack.streamTags(), blockTags(item));
+            result = resolvedBySet.get(set);
+            if (result == null) {
+                result = canonical(resolve(set.direct(), Arrays.stream(set.itemTags()), Arrays.stream(set.blockTags())));
+                List<ResolvedTag> previous = resolvedBySet.putIfAbsent(set, result);
+                if (previous != null) result = previous;
+            }
+            List<ResolvedTag> previous = itemCache.putIfAbsent(item, result);
+            if (previous != null) result = previous;
+        }
+
+        if (TooltipProfiler.end(event, Stage.RESOLVE_TAGS, start, hit)) {
+            TooltipProfiler.commit(event, Stage.RESOLVE_TAGS, Registries.ITEM.getId(item).toString(), result.size(), tagCount, hit);
+        }
+        return result;
+    }
+
+    /**
+     * The shared instance of a badge list. Whole groups of items (every plank, every ore) have
+     * the same tags and so the same badges; they all end up holding one list of interned tags.
+     * The list's hash is its fingerprint.
+     */
+    private List<ResolvedTag> canonical(List<ResolvedTag> tags) {
+        if (tags.isEmpty()) return List.of();
+        List<ResolvedTag> existing = canonicalLists.get(tags);
+        if (existing != null) return existing;
+
+        List<ResolvedTag> interned = new ArrayList<>(tags.size());
+        for (ResolvedTag tag : tags) {
+            ResolvedTag shared = canonicalTags.putIfAbsent(tag, tag);
+            interned.add(shared != null ? shared : tag);
+        }
+        List<ResolvedTag> copy = List.copyOf(interned);
+        existing = canonicalLists.putIfAbsent(copy, copy);
+        return existing != null ? existing : copy;
+    }
+
+    /**
+     * The tag table for the currently loaded game tags, dropped together with the snapshot's
+     * caches whenever tags reload. Until it has been built in the background this is a live
+     * table that resolves each tag as it is looked up; results are the same, only slower.
+     */
+    TagResolutionTable table() {
+        TagResolutionTable current = table;
+        if (current != null) return current;
+        prepareInBackground();
+        return liveTable;
+    }
+
+    private TagResolutionTable builtTable() {
+        TagResolutionTable current = table;
+        if (current == null) {
+            // Building twice under a race is harmless; both results are identical
+            Stream<TagKey<?>> tags = Stream.concat(Registries.ITEM.streamTags(), Registries.BLOCK.streamTags());
+            current = loadOrBuildTable(tags.toList());
+        }
+        return current;
+    }
+
+    TagResolutionTable loadOrBuildTable(List<TagKey<?>> tags) {
+        String translationSet = DerivedNames.translationSet();
+        if (contentHash == 0 || translationSet == null) return buildTable(tags.iterator());
+
+        long tagsHash = CompiledTableCache.hashTags(tags, translationSet);
+        Optional<Map<String, ResolvedTag>> cached = CompiledTableCache.load(contentHash, tagsHash);
+        if (cached.isPresent()) {
+            TagResolutionTable loaded = TagResolutionTable.build(matcher, useBlacklist, tags.iterator(), tag -> cached.get().get(tag.id().toString()));
+            tableTagsHash = tagsHash;
+            table = loaded;
+            return loaded;
+        }
+        TagResolutionTable built = buildTable(tags.iterator());
+        tableTagsHash = tagsHash;
+        CompiledTableCache.saveAsync(contentHash, tagsHash, built);
+        return built;
+    }
+
+    /**
+     * Queues {@link #prepare} on the builder thread, once per snapshot. Skipped if the snapshot
+     * has been replaced by the time its turn comes.
+     */
+    void prepareInBackground() {
+        if (!prepareQueued.compareAndSet(false, true)) return;
+        BUILDER.execute(() -> {
+            if (!CustomTagsConfig.isPublished(this)) return;
+            long start = System.nanoTime();
+            prepare();
+            TooltipsReforgedDyed.LOGGER.debug("Built tag tables for generation {} in {} ms",
+                generation, (System.nanoTime() - start) / 1_000_000);
+        });
+    }
+
+    /**
+     * Builds the tag table and the per-item flag table on the calling thread, then starts
+     * building the badge index in the background.
+     */
+    void prepare() {
+        TagResolutionTable table = builtTable();
+        builtItemTable();
+        ForkJoinPool.commonPool().execute(() -> {
+            long start = System.nanoTime();
+            badgeIndex = buildBadgeIndex(table);
+            TooltipsReforgedDyed.LOGGER.debug("Built badge index for generation {} in {} ms",
+                generation, (System.nanoTime() - start) / 1_000_000);
+        });
+    }
+
+    /**
+     * The badge index for this snapshot; {@link BadgeIndex#EMPTY} until {@link #prepare} has
+     * finished building it.
+     */
+    BadgeIndex badgeIndex() {
+        return badgeIndex;
+    }
+
+    /**
+     * {@link CustomTagsConfig#MAY_HAVE_BADGES} and {@link CustomTagsConfig#MAY_CARRY_TRADE} bits
+     * for an item. Allocation-free: one raw id lookup and an array read.
+     */
+    int flagsFor(Item item) {
+        ItemTable items = itemTable();
+        // Unknown items, and every item until the table is built, get every bit so they take the full path
+        if (items == null) return CustomTagsConfig.MAY_HAVE_BADGES | CustomTagsConfig.MAY_CARRY_TRADE;
+        byte[] flags = items.flags();
+        int rawId = Registries.ITEM.getRawId(item);
+        if (rawId < 0 || rawId >= flags.length) return CustomTagsConfig.MAY_HAVE_BADGES | CustomTagsConfig.MAY_CARRY_TRADE;
+        return flags[rawId];
+    }
+
+    /**
+     * The per-item table, or null until it has been built in the background.
+     */
+    private ItemTable itemTable() {
+        ItemTable current = itemTable;
+        if (current == null) prepareInBackground();
+        return current;
+    }
+
+    private ItemTable builtItemTable() {
+        ItemTable current = itemTable;
+        if (current == null) {
+            current = buildItemTable(builtTable());
+            itemTable = current;
+        }
+        return current;
+    }
+
+    private ItemTable buildItemTable(TagResolutionTable table) {
+        byte[] flags = new byte[Registries.ITEM.size()];
+        Map<Item, List<TagEntry>> direct = new IdentityHashMap<>();
+        Map<Item, String[]> tradePaths = new IdentityHashMap<>();
+        for (Item item : Registries.ITEM) {
+            int rawId = Registries.ITEM.getRawId(item);
+            if (rawId < 0 || rawId >= flags.length) continue;
+
+            Identifier id = Registries.ITEM.getId(item);
+            // itemTags patterns are matched here once per item, never on hover
+            List<TagEntry> entries = itemRules.entriesFor(id);
+            if (!entries.isEmpty()) direct.put(item, entries);
+
+            int bits = 0;
+            boolean hasBadges = !entries.isEmpty()
+                || item.getRegistryEntry().streamTags().anyMatch(tag -> !table.get(tag).isHidden())
+                || blockTags(item).anyMatch(tag -> !table.get(tag).isHidden());
+            if (hasBadges) bits |= CustomTagsConfig.MAY_HAVE_BADGES;
+            String[] tradePath = tradeSources.get(id.toString());
+            if (tradePath != null) {
+                tradePaths.put(item, tradePath);
+                bits |= CustomTagsConfig.MAY_CARRY_TRADE;
+            }
+            flags[rawId] = (byte) bits;
+        }
+        return new ItemTable(flags, direct, tradePaths);
+    }
+
+    /**
+     * Follows the item's trade source path into its NBT. Null unless the compound it ends at
+     * holds both trade lists.
+     */
+    NbtCompound tradeNbt(ItemStack stack) {
+        ItemTable items = itemTable();
+        String[] path = items != null ? items.tradePaths().get(stack.getItem()) : tradePath(Registries.ITEM.getId(stack.getItem()));
+        return path == null ? null : followTradePath(path, stack.getNbt());
+    }
+
+    /**
+     * Same as {@link #tradeNbt(ItemStack)} by item id, for running without a game instance.
+     */
+    NbtCompound tradeNbt(Identifier itemId, NbtCompound nbt) {
+        String[] path = tradePath(itemId);
+        return path == null ? null : followTradePath(path, nbt);
+    }
+
+    /**
+     * The configured trade source path for an item id, or null if it carries no trade.
+     */
+    String[] tradePath(Identifier itemId) {
+        return tradeSources.get(itemId.toString());
+    }
+
+    static NbtCompound followTradePath(String[] path, NbtCompound nbt) {
+        if (nbt == null) return null;
+        for (String key : path) {
+            if (!nbt.contains(key, NbtElement.COMPOUND_TYPE)) return null;
+            nbt = nbt.getCompound(key);
+        }
+        return nbt.contains("requestedItems") && nbt.contains("paymentItems") ? nbt : null;
+    }
+
+    /**
+     * Direct {@code itemTags} entries for an item, from the item table.
+     */
+    private List<TagEntry> directEntries(Item item) {
+        ItemTable items = itemTable();
+        if (items == null) return itemRules.entriesFor(Registries.ITEM.getId(item));
+        List<TagEntry> entries = items.direct().get(item);
+        if (entries != null) return entries;
+        // Items registered after the table was built aren't in it
+        int rawId = Registries.ITEM.getRawId(item);
+        return rawId >= 0 && rawId < items.flags().length ? List.of() : itemRules.entriesFor(Registries.ITEM.getId(item));
+    }
+
+    /**
+     * Builds and installs the tag table from the given tags instead of the game registries.
+     */
+    TagResolutionTable buildTable(Iterator<TagKey<?>> tags) {
+        TagResolutionTable built = TagResolutionTable.build(matcher, useBlacklist, tags);
+        table = built;
+        return built;
+    }
+
+    /**
+     * Indexes every registered item's visible badges. Items are resolved in parallel on the
+     * common fork-join pool; the table is read-only by now, so workers share it freely.
+     */
+    private BadgeIndex buildBadgeIndex(TagResolutionTable table) {
+        Item[] items = new Item[Registries.ITEM.size()];
+        for (Item item : Registries.ITEM) {
+            int rawId = Registries.ITEM.getRawId(item);
+            if (rawId >= 0 && rawId < items.length) items[rawId] = item;
+        }
+
+        Map<String, Set<Integer>> byText = new ConcurrentHashMap<>();
+        Map<String, Set<Integer>> byTagId = new ConcurrentHashMap<>();
+        IntStream.range(0, items.length).parallel().forEach(rawId -> {
+            Item item = items[rawId];
+            if (item == null) return;
+
+            for (TagEntry entry : directEntries(item)) {
+                addPosting(byText, BadgeIndex.normalize(CustomTagsConfig.resolveTag("custom", entry, false).text()), rawId);
+            }
+            Stream.concat(item.getRegistryEntry().streamTags(), blockTags(item)).forEach(tag -> {
+                TagResolutionTable.Entry entry = table.get(tag);
+                if (entry.isHidden()) return;
+                addPosting(byText, BadgeIndex.normalize(entry.tag().text()), rawId);
+                addPosting(byTagId, tag.id().toString(), rawId);
+            });
+        });
+        return BadgeIndex.build(items, byText, byTagId);
+    }
+
+    private static void addPosting(Map<String, Set<Integer>> postings, String key, int rawId) {
+        postings.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(rawId);
+    }
+
+    private static Stream<? extends TagKey<?>> blockTags(Item item) {
+        return item instanceof BlockItem blockItem
+            ? blockItem.getBlock().getDefaultState().streamTags()
+            : Stream.empty();
+    }
+
+    /**
+     * The uncached work behind {@link #tagsFor}. Takes plain ids and tag keys so it can run
+     * without a game instance.
+     */
+    List<ResolvedTag> resolve(Identifier itemId, Stream<? extends TagKey<?>> itemTagKeys, Stream<? extends TagKey<?>> blockTagKeys) {
+        return resolve(itemRules.entriesFor(itemId), itemTagKeys, blockTagKeys);
+    }
+
+    private List<ResolvedTag> resolve(List<TagEntry> direct, Stream<? extends TagKey<?>> itemTagKeys, Stream<? extends TagKey<?>> blockTagKeys) {
+        List<ResolvedTag> result = new ArrayList<>();
+
+        // Direct item tags
+        for (TagEntry entry : direct) {
+            result.add(CustomTagsConfig.resolveTag("custom", entry, false));
+        }
+
+        // Item tags, then block tags for BlockItems; a tag id present in both is shown once
+        TagResolutionTable table = table();
+        BitSet seen = new BitSet(table.idCount());
+        // Tags the table resolved on the spot have no ordinal, so those are told apart by id
+        Set<Identifier> seenUnnumbered = new HashSet<>();
+        itemTagKeys.forEach(tag -> addTag(tag, table.get(tag), seen, seenUnnumbered, result));
+        blockTagKeys.forEach(tag -> addTag(tag, table.get(tag), seen, seenUnnumbered, result));
+
+        return result;
+    }
+
+    private static void addTag(TagKey<?> tag, TagResolutionTable.Entry entry, BitSet seen, Set<Identifier> seenUnnumbered,
+                               List<ResolvedTag> result) {
+        if (entry.isHidden()) return;
+        if (entry.ordinal() >= 0) {
+            if (seen.get(entry.ordinal())) return;
+            seen.set(entry.ordinal());
+        } else if (!seenUnnumbered.add(tag.id())) {
+            return;
+        }
+        result.add(entry.tag());
+    }
+
+    /**
+     * Everything an item's badges are resolved from: its direct {@code itemTags} entries and its
+     * item and block tags, in the order they are shown. Equal sets always resolve to equal
+     * badges; the hash is computed once since every lookup needs it.
+     */
+    private static final class TagSet {
+        private final List<TagEntry> direct;
+        private final TagKey<?>[] itemTags;
+        private final TagKey<?>[] blockTags;
+        private final int hash;
+
+        private TagSet(List<TagEntry> direct, TagKey<?>[] itemTags, TagKey<?>[] blockTags) {
+            this.direct = direct;
+            this.itemTags = itemTags;
+            this.blockTags = blockTags;
+            this.hash = (direct.hashCode() * 31 + Arrays.hashCode(itemTags)) * 31 + Arrays.hashCode(blockTags);
+        }
+
+        static TagSet of(List<TagEntry> direct, Stream<? extends TagKey<?>> itemTags, Stream<? extends TagKey<?>> blockTags) {
+            return new TagSet(direct, itemTags.toArray(TagKey<?>[]::new), blockTags.toArray(TagKey<?>[]::new));
+        }
+
+        List<TagEntry> direct() {
+            return direct;
+        }
+
+        TagKey<?>[] itemTags() {
+            return itemTags;
+        }
+
+        TagKey<?>[] blockTags() {
+            return blockTags;
+        }
+
+        boolean touches(Set<Identifier> tagIds) {
+            for (TagKey<?> tag : itemTags) if (tagIds.contains(tag.id())) return true;
+            for (TagKey<?> tag : blockTags) if (tagIds.contains(tag.id())) return true;
+            return false;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TagSet other && hash == other.hash && direct.equals(other.direct)
+                && Arrays.equals(itemTags, other.itemTags) && Arrays.equals(blockTags, other.blockTags);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Per-item data computed once per config and tag reload: the flag bits by raw id, the
+     * {@code itemTags} entries of every item that has any, and the trade source path of every
+     * trade-carrying item.
+     */
+    private record ItemTable(byte[] flags, Map<Item, List<TagEntry>> direct, Map<Item, String[]> tradePaths) {}
+}
@@ -0,0 +1,114 @@
+package com.yardenzamir.tooltipsreforgeddyed.config;
+
+import com.yardenzamir.tooltipsreforgeddyed.TooltipsReforgedDyed;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches the main config file and the rule directory next to it on a daemon thread, and runs
+ * the reload callback there with the paths that changed. Keeps all file system access off the
+ * render thread.
+ * <p>
+ * The directory itself is reported when it appears, or when events were lost, meaning "rescan
+ * everything in it".
+ */
+final class ConfigWatcher implements Runnable {
+    // Editors often save in several steps (truncate, write, rename); wait for them to settle
+    private static final long SETTLE_MILLIS = 100;
+
+    private final WatchService watchService;
+    private final Path mainFile;
+    private final Path directory;
+    private final Consumer<Set<Path>> onChange;
+
+    private ConfigWatcher(WatchService watchService, Path mainFile, Path directory, Consumer<Set<Path>> onChange) {
+        this.watchService = watchService;
+        this.mainFile = mainFile;
+        this.directory = directory;
+        this.onChange = onChange;
+    }
+
+    static void start(Path mainFile, Path directory, Consumer<Set<Path>> onChange) throws IOException {
+        WatchService service = FileSystems.getDefault().newWatchService();
+        ConfigWatcher watcher = new ConfigWatcher(service, mainFile.toAbsolutePath(), directory.toAbsolutePath(), onChange);
+        watcher.register(watcher.mainFile.getParent());
+        if (Files.isDirectory(watcher.directory)) watcher.register(watcher.directory);
+
+        Thread thread = new Thread(watcher, "TooltipsReforgedDyed config watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void register(Path dir) throws IOException {
+        dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                Set<Path> changed = new LinkedHashSet<>();
+                drain(watchService.take(), changed);
+
+                // Swallow the burst of follow-up events a single save produces
+                WatchKey next;
+                while ((next = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    drain(next, changed);
+                }
+
+                if (!changed.isEmpty()) {
+                    TooltipsReforgedDyed.LOGGER.info("Config changed, reloading {}", changed);
+                    try {
+                        onChange.accept(changed);
+                    } catch (RuntimeException e) {
+                        TooltipsReforgedDyed.LOGGER.error("Config reload failed", e);
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+            // Shutting down
+        }
+    }
+
+    private void drain(WatchKey key, Set<Path> changed) {
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed.add(mainFile);
+                changed.add(directory);
+                continue;
+            }
+            Path path = dir.resolve((Path) event.context());
+            if (path.equals(mainFile)) {
+                changed.add(path);
+            } else if (path.equals(directory)) {
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) registerDirectory();
+                changed.add(directory);
+            } else if (dir.equals(directory) && ConfigFiles.isRuleFile(path)) {
+                changed.add(path);
+            }
+        }
+        key.reset();
+    }
+
+    private void registerDirectory() {
+        try {
+            register(directory);
+        } catch (IOException e) {
+            TooltipsReforgedDyed.LOGGER.warn("Could not watch {} for changes", directory, e);
+        }
+    }
+}
@@ -3,76 +3,140 @@ package com.yardenzamir.tooltipsreforgeddyed.config;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.yardenzamir.tooltipsreforgeddyed.TooltipsReforgedDyed;
+import com.yardenzamir.tooltipsreforgeddyed.diagnostics.TooltipProfiler;
+import com.yardenzamir.tooltipsreforgeddyed.diagnostics.TooltipProfiler.Stage;
+import com.yardenzamir.tooltipsreforgeddyed.diagnostics.TooltipStageEvent;
 import net.minecraft.block.Block;
-import net.minecraft.item.BlockItem;
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
-import net.minecraft.registry.Registries;
+import net.minecraft.nbt.NbtCompound;
 import net.minecraft.registry.tag.TagKey;
-import net.minecraft.util.Identifier;
 
 import java.io.IOException;
-import java.io.Reader;
 import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ToIntFunction;
 
 public class CustomTagsConfig {
+    /** Item flag: the item has at least one visible badge. */
+    public static final int MAY_HAVE_BADGES = 1;
+    /** Item flag: the item's NBT may hold a Wares trade. */
+    public static final int MAY_CARRY_TRADE = 2;
+
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
-    private static ConfigData config = new ConfigData();
     private static Path configPath;
-    private static long lastModified = 0;
-
+    private static ConfigFiles configFiles;
+
+    // Everything derived from one version of the config, swapped as a unit by the watcher thread
+    private static final AtomicReference<ConfigSnapshot> snapshot = new AtomicReference<>(ConfigSnapshot.EMPTY);
+    private static final AtomicReference<String> configError = new AtomicReference<>();
+
+    // Pending until the first parse finishes; null afterwards so readers skip the volatile join
+    private static volatile CompletableFuture<Void> initialLoad;
+
+    /**
+     * Parses the config on a background thread and returns immediately. The first caller that
+     * needs the config waits for that parse if it hasn't finished yet.
+     * <p>
+     * Rules are read from {@code path} and from every {@code *.json} file in the directory with
+     * the same name next to it, e.g. {@code config/tooltips_reforged_dyed/}.
+     */
     public static void load(Path path) {
+        String fileName = path.getFileName().toString();
         configPath = path;
-        reload();
+        configFiles = new ConfigFiles(path, path.resolveSibling(fileName.substring(0, fileName.lastIndexOf('.'))));
+        CompiledTableCache.useFile(path.resolveSibling("tooltips_reforged_dyed.cache"));
+        initialLoad = CompletableFuture.runAsync(() -> {
+            long start = System.nanoTime();
+            reload(null);
+            TooltipsReforgedDyed.LOGGER.info("TooltipsReforgedDyed loaded with {} tag definitions in {} ms",
+                snapshot.get().tagCount(), (System.nanoTime() - start) / 1_000_000);
+            startWatcher();
+        }, task -> {
+            Thread thread = new Thread(task, "TooltipsReforgedDyed config loader");
+            thread.setDaemon(true);
+            thread.start();
+        });
     }
 
-    private static String configError = null;
+    private static void startWatcher() {
+        try {
+            ConfigWatcher.start(configFiles.mainFile(), configFiles.directory(), changed -> {
+                reload(changed);
+                // Off the render thread anyway, so build the lookup tables before the next hover
+                snapshot.get().prepare();
+            });
+        } catch (IOException e) {
+            TooltipsReforgedDyed.LOGGER.warn("Could not watch config for changes, hot reload disabled", e);
+        }
+    }
 
-    private static void reload() {
-        if (!Files.exists(configPath)) {
-            createDefaultConfig(configPath);
-            configError = null;
-            return;
+    private static ConfigSnapshot current() {
+        CompletableFuture<Void> pending = initialLoad;
+        if (pending != null) {
+            // reload() never throws, so this only waits
+            pending.join();
+            initialLoad = null;
         }
-        try {
-            lastModified = Files.getLastModifiedTime(configPath).toMillis();
-            try (Reader reader = Files.newBufferedReader(configPath)) {
-                config = GSON.fromJson(reader, ConfigData.class);
-                if (config == null) config = new ConfigData();
-                configError = null;
-            }
-        } catch (Exception e) {
-            TooltipsReforgedDyed.LOGGER.error("Failed to load custom tags config", e);
-            configError = "TooltipsReforgedDyed config error: " + e.getMessage();
-            config = new ConfigData(); // Use empty config instead of crashing
+        return snapshot.get();
+    }
+
+    /**
+     * @param changed files to re-read, or null to read everything
+     */
+    private static void reload(Set<Path> changed) {
+        TooltipStageEvent event = TooltipProfiler.begin();
+        long start = System.nanoTime();
+        readConfig(changed);
+        if (TooltipProfiler.end(event, Stage.RELOAD_CONFIG, start)) {
+            TooltipProfiler.commit(event, Stage.RELOAD_CONFIG, "", 0, snapshot.get().tagCount(), false);
         }
     }
 
-    public static String getAndClearError() {
-        String error = configError;
-        configError = null;
-        return error;
+    private static void readConfig(Set<Path> changed) {
+        List<String> errors;
+        if (changed == null) {
+            if (!Files.exists(configPath)) createDefaultConfig(configPath);
+            errors = configFiles.readAll();
+            snapshot.set(ConfigSnapshot.of(configFiles.merged(), configFiles.contentHash()));
+        } else {
+            errors = configFiles.read(changed);
+            ConfigData merged = configFiles.merged();
+            long contentHash = configFiles.contentHash();
+            // Carries over every cached resolution the changed files can't have affected. Builds a
+            // new snapshot per attempt in case a tag reload races with this one
+            snapshot.updateAndGet(previous -> ConfigSnapshot.of(merged, contentHash).inheritCaches(previous));
+        }
+
+        // Files that failed keep their previous rules so a bad edit doesn't wipe every badge;
+        // the error shows on the next tooltip
+        List<String> problems = new ArrayList<>(errors);
+        problems.addAll(snapshot.get().problems());
+        configError.set(problems.isEmpty() ? null : "TooltipsReforgedDyed config error in " + String.join("; ", problems));
     }
 
-    private static void checkReload() {
-        try {
-            long current = Files.getLastModifiedTime(configPath).toMillis();
-            if (current != lastModified) {
-                TooltipsReforgedDyed.LOGGER.info("Config changed, reloading...");
-                reload();
-            }
-        } catch (IOException ignored) {}
+    public static String getAndClearError() {
+        // Fast path avoids a write on every hover when there is nothing to report
+        return configError.get() == null ? null : configError.getAndSet(null);
     }
 
     private static void createDefaultConfig(Path path) {
-        config = new ConfigData();
+        ConfigData config = new ConfigData();
 
         // false = whitelist mode (only show tags in tagList)
         // true = blacklist mode (show all tags EXCEPT those in tagList, but use tagList for display overrides)
         config.useBlacklist = false;
 
+        // Most item icons a Wares trade shows; larger agreements end in a "+N more" line
+        config.maxTradeIcons = 24;
+
+        // Items whose NBT carries a Wares trade, and where in the NBT it is
+        config.tradeSources = new LinkedHashMap<>(ConfigSnapshot.DEFAULT_TRADE_SOURCES);
+
         // Example item-specific tags
         config.itemTags.put("minecraft:diamond_sword", List.of(
             new TagEntry("Favorite", 0x55FF55, null),
@@ -97,122 +161,89 @@ public class CustomTagsConfig {
         }
     }
 
-    public static List<ResolvedTag> getTagsForItem(ItemStack stack) {
-        checkReload();
-        List<ResolvedTag> result = new ArrayList<>();
-
-        // Direct item tags
-        Identifier itemId = Registries.ITEM.getId(stack.getItem());
-        List<TagEntry> direct = config.itemTags.get(itemId.toString());
-        if (direct != null) {
-            for (TagEntry entry : direct) {
-                result.add(resolveTag("custom", entry, false));
-            }
-        }
-
-        // Collect all item's tags
-        Set<String> itemTags = new HashSet<>();
-        stack.streamTags().forEach(tag -> itemTags.add(tag.id().toString()));
-
-        // Block tags for BlockItems
-        if (stack.getItem() instanceof BlockItem blockItem) {
-            blockItem.getBlock().getDefaultState().streamTags()
-                .forEach(tag -> itemTags.add(tag.id().toString()));
-        }
-
-        if (config.useBlacklist) {
-            // Blacklist mode: show all tags except those with hidden=true
-            for (String tagId : itemTags) {
-                MatchResult match = findMatchingEntry(tagId);
-                if (match == null) {
-                    // Not in list = show with auto-derived display
-                    result.add(resolveTag(tagId, new TagEntry(null, null, null), false));
-                } else if (!Boolean.TRUE.equals(match.entry.hidden())) {
-                    // In list but not hidden = show with custom display (or derived if wildcard)
-                    result.add(resolveTag(tagId, match.entry, match.isWildcard));
-                }
-                // hidden=true = blacklisted, don't show
-            }
-        } else {
-            // Whitelist mode: only show tags matching the list
-            for (String tagId : itemTags) {
-                MatchResult match = findMatchingEntry(tagId);
-                if (match != null) {
-                    result.add(resolveTag(tagId, match.entry, match.isWildcard));
-                }
-            }
-        }
-
-        return result;
+    /**
+     * Drops every cached resolution and re-resolves all known tags and items. Called whenever the game's
+     * tags change; config reloads start from empty caches anyway.
+     */
+    public static void invalidateCaches() {
+        // updateAndGet so a reload published concurrently by the watcher is never overwritten.
+        // The lookup tables are rebuilt on the builder thread; hovers until then resolve live
+        current();
+        snapshot.updateAndGet(ConfigSnapshot::withFreshCaches).prepareInBackground();
     }
 
-    private record MatchResult(TagEntry entry, boolean isWildcard) {}
+    static boolean isPublished(ConfigSnapshot candidate) {
+        return snapshot.get() == candidate;
+    }
 
-    private static MatchResult findMatchingEntry(String tagId) {
-        // Check exact match first
-        TagEntry exact = config.tagList.get(tagId);
-        if (exact != null) {
-            return new MatchResult(exact, false);
-        }
+    /**
+     * Called after resources reload. Derived badge names come from the loaded translations, so
+     * the tables are rebuilt if the language or resource packs changed any of them.
+     * {@code translationSet} identifies those translations, such as the language code with the
+     * enabled resource packs and mod versions.
+     */
+    public static void reloadDerivedNames(String translationSet) {
+        if (DerivedNames.refresh(translationSet)) invalidateCaches();
+    }
 
-        // Check wildcard patterns
-        for (Map.Entry<String, TagEntry> entry : config.tagList.entrySet()) {
-            String pattern = entry.getKey();
-            if (pattern.contains("*") && matchesWildcard(pattern, tagId)) {
-                return new MatchResult(entry.getValue(), true);
-            }
-        }
+    /**
+     * {@link #MAY_HAVE_BADGES} and {@link #MAY_CARRY_TRADE} bits for an item, from a table built
+     * once per config and tag reload. Allocation-free, so callers can skip items with nothing to
+     * show before doing any other work.
+     */
+    public static int getItemFlags(Item item) {
+        return current().flagsFor(item);
+    }
 
-        return null;
+    /**
+     * Safe to call from any thread; reads a single published snapshot. Only blocks if the initial
+     * load is still running.
+     */
+    public static List<ResolvedTag> getTagsForItem(ItemStack stack) {
+        return current().tagsFor(stack);
     }
 
-    private static boolean matchesWildcard(String pattern, String tagId) {
-        // Convert glob pattern to regex: * matches anything
-        String regex = pattern
-            .replace(".", "\\.")
-            .replace("*", ".*");
-        return tagId.matches(regex);
+    /**
+     * Reverse lookup from badge text and source tag id to items, for recipe-viewer search. Rebuilt
+     * in the background after every config or tag reload; empty until the first build finishes.
+     */
+    public static BadgeIndex getBadgeIndex() {
+        return current().badgeIndex();
     }
 
-    private static ResolvedTag resolveTag(String tagId, TagEntry entry, boolean ignoreEntryDisplay) {
+    static ResolvedTag resolveTag(String tagId, TagEntry entry, boolean ignoreEntryDisplay) {
         // If wildcard match, ignore entry's text/color and derive from actual tag
-        String text = (!ignoreEntryDisplay && entry.text() != null) ? entry.text() : deriveDisplayName(tagId);
+        String text = (!ignoreEntryDisplay && entry.text() != null) ? entry.text() : DerivedNames.of(tagId);
         int color = (!ignoreEntryDisplay && entry.color() != null) ? entry.color() : colorFromName(text);
         return new ResolvedTag(text, 0xFF000000 | color);
     }
 
-    private static String deriveDisplayName(String tagId) {
-        // Get last segment after / or : and convert to title case
-        String path = tagId;
-        int slashIdx = path.lastIndexOf('/');
-        int colonIdx = path.lastIndexOf(':');
-        int idx = Math.max(slashIdx, colonIdx);
-        if (idx >= 0 && idx < path.length() - 1) {
-            path = path.substring(idx + 1);
-        }
-        return toTitleCase(path);
-    }
-
-    private static String toTitleCase(String input) {
-        if (input == null || input.isEmpty()) return input;
-        StringBuilder result = new StringBuilder();
-        boolean capitalizeNext = true;
-        for (char c : input.toCharArray()) {
-            if (c == '_' || c == '-') {
-                result.append(' ');
-                capitalizeNext = true;
-            } else if (capitalizeNext) {
-                result.append(Character.toUpperCase(c));
-                capitalizeNext = false;
-            } else {
-                result.append(Character.toLowerCase(c));
-            }
-        }
-        return result.toString();
+    /**
+     * The compound holding a trade's {@code requestedItems} and {@code paymentItems} for items
+     * listed in {@code tradeSources}, or null. Items that carry no trade cost one identity-map
+     * lookup.
+     */
+    public static NbtCompound getTradeNbt(ItemStack stack) {
+        return current().tradeNbt(stack);
+    }
+
+    /**
+     * Most item icons a trade tooltip draws, requested and payment together.
+     */
+    public static int getMaxTradeIcons() {
+        return current().maxTradeIcons();
     }
 
     public static int getTagCount() {
-        return config.itemTags.size() + config.tagList.size();
+        return current().tagCount();
+    }
+
+    /**
+     * Changes whenever the config reloads or the game's tags change, i.e. whenever
+     * {@link #getTagsForItem} may start returning something different.
+     */
+    public static int getGeneration() {
+        return current().generation();
     }
 
     private static int colorFromName(String name) {
@@ -228,10 +259,88 @@ public class CustomTagsConfig {
 
     public record TagEntry(String text, Integer color, Boolean hidden) {}
 
-    public record ResolvedTag(String text, int argbColor) {}
+    /**
+     * A badge ready to draw. Background and frame colors are derived once here instead of on
+     * every frame, and the text width is measured once per reload of the game's font.
+     * <p>
+     * Instances are flyweights: every snapshot interns them, so all items showing the same badge
+     * share one object and one measured width. Equality only looks at text and color.
+     */
+    public static final class ResolvedTag {
+        private final String text;
+        private final int argbColor;
+        private final int backgroundColor;
+        private final int frameColor;
+
+        // Font generation in the high half, unscaled width in the low half; -1 until measured.
+        // One volatile long so a reader never pairs a width with the wrong generation
+        private volatile long measuredWidth = -1;
+
+        public ResolvedTag(String text, int argbColor) {
+            this.text = text;
+            this.argbColor = argbColor;
+            this.backgroundColor = darkenColor(argbColor, 0.85f);
+            this.frameColor = darkenColor(argbColor, 0.7f);
+        }
+
+        public String text() {
+            return text;
+        }
+
+        public int argbColor() {
+            return argbColor;
+        }
+
+        public int backgroundColor() {
+            return backgroundColor;
+        }
+
+        public int frameColor() {
+            return frameColor;
+        }
+
+        /**
+         * Unscaled width of the text, measured with {@code measure} the first time it is asked
+         * for in a given font generation.
+         */
+        public int textWidth(int generation, ToIntFunction<String> measure) {
+            long packed = measuredWidth;
+            if (packed != -1 && (int) (packed >>> 32) == generation) return (int) packed;
+            int width = measure.applyAsInt(text);
+            measuredWidth = ((long) generation << 32) | (width & 0xFFFFFFFFL);
+            return width;
+        }
+
+        private static int darkenColor(int color, float factor) {
+            int alpha = (color >> 24) & 0xFF;
+            int red = (int) (((color >> 16) & 0xFF) * factor);
+            int green = (int) (((color >> 8) & 0xFF) * factor);
+            int blue = (int) ((color & 0xFF) * factor);
+            return (alpha << 24) | (red << 16) | (green << 8) | blue;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ResolvedTag other && argbColor == other.argbColor && Objects.equals(text, other.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hashCode(text) + argbColor;
+        }
+
+        @Override
+        public String toString() {
+            return "ResolvedTag[text=" + text + ", argbColor=" + Integer.toHexString(argbColor) + "]";
+        }
+    }
 
-    private static class ConfigData {
+    static class ConfigData {
         boolean useBlacklist = false;
+        int maxTradeIcons = 24;
+        // Item id -> dot-separated path to the compound holding requestedItems/paymentItems,
+        // "" for the item's own NBT. Null means the built-in Wares and Prepare to Dye sources
+        Map<String, String> tradeSources;
         Map<String, List<TagEntry>> itemTags = new LinkedHashMap<>();
         Map<String, TagEntry> tagList = new LinkedHashMap<>();
     }
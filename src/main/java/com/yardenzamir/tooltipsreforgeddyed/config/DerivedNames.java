@@ -0,0 +1,109 @@
+package com.yardenzamir.tooltipsreforgeddyed.config;
+
+import net.minecraft.util.Identifier;
+import net.minecraft.util.Language;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Display names for tags shown without configured text. A {@code tag.item.<namespace>.<path>}
+ * translation wins, then {@code tag.block...}, with {@code /} in the path written as {@code .};
+ * otherwise the last path segment is title-cased.
+ * <p>
+ * Names are only looked up while tag tables are built, and are cached for the loaded
+ * {@link Language}. The game loads a new one whenever resources reload; {@link #refresh} keeps
+ * the cache, and reports nothing changed, unless a cached name actually reads differently.
+ * <p>
+ * Each refresh also records which translations the language was loaded from (its code plus the
+ * enabled resource packs and mods), so a table persisted under one set of translations is never
+ * reused under another.
+ */
+final class DerivedNames {
+    private static volatile Names names = new Names(Language.getInstance(), null, new ConcurrentHashMap<>());
+
+    private record Names(Language language, String translationSet, Map<String, String> byTagId) {}
+
+    private DerivedNames() {}
+
+    static String of(String tagId) {
+        Language language = Language.getInstance();
+        Names current = names;
+        // A new language that refresh() hasn't compared yet; don't mix it into the old cache
+        if (current.language() != language) return derive(language, tagId);
+        return current.byTagId().computeIfAbsent(tagId, id -> derive(language, id));
+    }
+
+    /**
+     * Identifies the translations the loaded language came from, or null if no refresh has
+     * described the loaded language yet.
+     */
+    static String translationSet() {
+        Names current = names;
+        return current.language() == Language.getInstance() ? current.translationSet() : null;
+    }
+
+    /**
+     * Moves the cache to the currently loaded language, built from {@code translationSet}.
+     * Returns whether any name seen so far changed, meaning tables built from the old names need
+     * rebuilding.
+     */
+    static synchronized boolean refresh(String translationSet) {
+        Language language = Language.getInstance();
+        Names previous = names;
+        if (previous.language() == language) {
+            names = new Names(language, translationSet, previous.byTagId());
+            return false;
+        }
+
+        boolean changed = false;
+        for (Map.Entry<String, String> entry : previous.byTagId().entrySet()) {
+            if (!derive(language, entry.getKey()).equals(entry.getValue())) {
+                changed = true;
+                break;
+            }
+        }
+        names = new Names(language, translationSet, changed ? new ConcurrentHashMap<>() : previous.byTagId());
+        return changed;
+    }
+
+    private static String derive(Language language, String tagId) {
+        Identifier id = Identifier.tryParse(tagId);
+        if (id != null) {
+            String suffix = id.getNamespace() + "." + id.getPath().replace('/', '.');
+            if (language.hasTranslation("tag.item." + suffix)) return language.get("tag.item." + suffix);
+            if (language.hasTranslation("tag.block." + suffix)) return language.get("tag.block." + suffix);
+        }
+        return deriveDisplayName(tagId);
+    }
+
+    private static String deriveDisplayName(String tagId) {
+        // Get last segment after / or : and convert to title case
+        String path = tagId;
+        int slashIdx = path.lastIndexOf('/');
+        int colonIdx = path.lastIndexOf(':');
+        int idx = Math.max(slashIdx, colonIdx);
+        if (idx >= 0 && idx < path.length() - 1) {
+            path = path.substring(idx + 1);
+        }
+        return toTitleCase(path);
+    }
+
+    private static String toTitleCase(String input) {
+        if (input == null || input.isEmpty()) return input;
+        StringBuilder result = new StringBuilder();
+        boolean capitalizeNext = true;
+        for (char c : input.toCharArray()) {
+            if (c == '_' || c == '-') {
+                result.append(' ');
+                capitalizeNext = true;
+            } else if (capitalizeNext) {
+                result.append(Character.toUpperCase(c));
+                capitalizeNext = false;
+            } else {
+                result.append(Character.toLowerCase(c));
+            }
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,92 @@
+package com.yardenzamir.tooltipsreforgeddyed.config;
+
+import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig.TagEntry;
+import net.minecraft.util.Identifier;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled form of the {@code itemTags} section. Keys are exact item ids or {@code *} globs such
+ * as {@code create:*} or {@code mekanism:*_ore}. Globs with a literal namespace are indexed by
+ * it, so an item is only checked against the patterns for its own mod plus the few that leave
+ * the namespace open.
+ * <p>
+ * An item gets the entries of its exact key first, then those of every matching pattern in
+ * declaration order. Meant to be evaluated once per item when tables are built, not per hover.
+ */
+final class ItemTagRules {
+    static final ItemTagRules EMPTY = compile(Map.of());
+
+    private final Map<String, List<TagEntry>> exact;
+    private final Map<String, List<Rule>> byNamespace;
+    private final List<Rule> anyNamespace;
+
+    private ItemTagRules(Map<String, List<TagEntry>> exact, Map<String, List<Rule>> byNamespace, List<Rule> anyNamespace) {
+        this.exact = exact;
+        this.byNamespace = byNamespace;
+        this.anyNamespace = anyNamespace;
+    }
+
+    static ItemTagRules compile(Map<String, List<TagEntry>> itemTags) {
+        Map<String, List<TagEntry>> exact = new HashMap<>();
+        Map<String, List<Rule>> byNamespace = new HashMap<>();
+        List<Rule> anyNamespace = new ArrayList<>();
+        int order = 0;
+        for (Map.Entry<String, List<TagEntry>> entry : itemTags.entrySet()) {
+            String key = entry.getKey();
+            if (key.indexOf('*') < 0) {
+                exact.put(key, entry.getValue());
+                continue;
+            }
+            Rule rule = new Rule(order++, key.split("\\*", -1), entry.getValue());
+            int colon = key.indexOf(':');
+            if (colon > 0 && key.lastIndexOf('*', colon) < 0) {
+                byNamespace.computeIfAbsent(key.substring(0, colon), ns -> new ArrayList<>()).add(rule);
+            } else {
+                anyNamespace.add(rule);
+            }
+        }
+        return new ItemTagRules(exact, byNamespace, anyNamespace);
+    }
+
+    boolean matches(Identifier itemId) {
+        String id = itemId.toString();
+        if (exact.containsKey(id)) return true;
+        for (Rule rule : byNamespace.getOrDefault(itemId.getNamespace(), List.of())) {
+            if (TagPatternMatcher.matchesGlob(rule.segments, id)) return true;
+        }
+        for (Rule rule : anyNamespace) {
+            if (TagPatternMatcher.matchesGlob(rule.segments, id)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Every entry that applies to the item, or an empty list.
+     */
+    List<TagEntry> entriesFor(Identifier itemId) {
+        String id = itemId.toString();
+        List<TagEntry> exactEntries = exact.getOrDefault(id, List.of());
+        List<Rule> namespaced = byNamespace.getOrDefault(itemId.getNamespace(), List.of());
+        if (namespaced.isEmpty() && anyNamespace.isEmpty()) return exactEntries;
+
+        List<TagEntry> result = null;
+        // Both lists are in declaration order; merge them to keep that order across the two
+        int a = 0;
+        int b = 0;
+        while (a < namespaced.size() || b < anyNamespace.size()) {
+            Rule rule = b >= anyNamespace.size()
+                || (a < namespaced.size() && namespaced.get(a).order < anyNamespace.get(b).order)
+                ? namespaced.get(a++) : anyNamespace.get(b++);
+            if (!TagPatternMatcher.matchesGlob(rule.segments, id)) continue;
+            if (result == null) result = new ArrayList<>(exactEntries);
+            result.addAll(rule.entries);
+        }
+        return result == null ? exactEntries : List.copyOf(result);
+    }
+
+    private record Rule(int order, String[] segments, List<TagEntry> entries) {}
+}
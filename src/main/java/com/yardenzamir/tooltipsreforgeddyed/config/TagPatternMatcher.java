@@ -0,0 +1,160 @@
+package com.yardenzamir.tooltipsreforgeddyed.config;
+
+import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig.TagEntry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled form of the {@code tagList} section. Exact ids are looked up in a hash map; wildcard
+ * patterns are indexed by their literal prefix (the text before the first {@code *}) in a
+ * character trie, so a lookup only checks patterns whose prefix actually matches the tag id.
+ * <p>
+ * Exact entries always win over wildcards, and among wildcards the first one in declaration
+ * order wins - the same rules the config has always had.
+ */
+final class TagPatternMatcher {
+    static final TagPatternMatcher EMPTY = compile(Map.of());
+
+    private final Map<String, Match> exact;
+    private final Node root;
+    private final int wildcardCount;
+
+    private TagPatternMatcher(Map<String, Match> exact, Node root, int wildcardCount) {
+        this.exact = exact;
+        this.root = root;
+        this.wildcardCount = wildcardCount;
+    }
+
+    static TagPatternMatcher compile(Map<String, TagEntry> tagList) {
+        Map<String, Match> exact = new HashMap<>();
+        Node root = new Node();
+        int order = 0;
+        for (Map.Entry<String, TagEntry> entry : tagList.entrySet()) {
+            String pattern = entry.getKey();
+            if (pattern == null || entry.getValue() == null) continue;
+            int star = pattern.indexOf('*');
+            if (star < 0) {
+                exact.putIfAbsent(pattern, new Match(entry.getValue(), false));
+                continue;
+            }
+            Node node = root;
+            for (int i = 0; i < star; i++) {
+                node = node.child(pattern.charAt(i));
+            }
+            node.addPattern(new Glob(order++, pattern, new Match(entry.getValue(), true)));
+        }
+        return new TagPatternMatcher(exact, root, order);
+    }
+
+    /**
+     * Returns the entry that applies to the given tag id, or {@code null} if none does.
+     * Does not allocate.
+     */
+    Match find(String tagId) {
+        Match exactMatch = exact.get(tagId);
+        if (exactMatch != null) return exactMatch;
+        if (wildcardCount == 0) return null;
+
+        Glob best = null;
+        Node node = root;
+        int i = 0;
+        while (node != null) {
+            for (Glob glob : node.patterns) {
+                if (best != null && glob.order >= best.order) break; // patterns are kept in order
+                if (glob.matches(tagId)) {
+                    best = glob;
+                    break;
+                }
+            }
+            if (i == tagId.length()) break;
+            node = node.get(tagId.charAt(i++));
+        }
+        return best == null ? null : best.match;
+    }
+
+    record Match(TagEntry entry, boolean isWildcard) {}
+
+    /**
+     * Matches a glob already split on {@code *} against {@code s}. {@code *} matches any run of
+     * characters, including an empty one; every other character is literal.
+     */
+    static boolean matchesGlob(String[] segments, String s) {
+        String first = segments[0];
+        String last = segments[segments.length - 1];
+        if (s.length() < first.length() + last.length()) return false;
+        if (!s.startsWith(first) || !s.endsWith(last)) return false;
+
+        // Middle segments are matched greedily left to right, which is exact for '*'-only globs
+        int pos = first.length();
+        int end = s.length() - last.length();
+        for (int i = 1; i < segments.length - 1; i++) {
+            String segment = segments[i];
+            if (segment.isEmpty()) continue;
+            int found = s.indexOf(segment, pos);
+            if (found < 0 || found + segment.length() > end) return false;
+            pos = found + segment.length();
+        }
+        return true;
+    }
+
+    /**
+     * A single {@code *} glob split into its literal segments.
+     */
+    private static final class Glob {
+        final int order;
+        final Match match;
+        private final String[] segments;
+
+        Glob(int order, String pattern, Match match) {
+            this.order = order;
+            this.match = match;
+            this.segments = pattern.split("\\*", -1);
+        }
+
+        boolean matches(String s) {
+            return matchesGlob(segments, s);
+        }
+    }
+
+    private static final class Node {
+        private static final Glob[] NO_PATTERNS = new Glob[0];
+
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        Glob[] patterns = NO_PATTERNS;
+
+        Node get(char c) {
+            char[] k = keys;
+            for (int i = 0; i < k.length; i++) {
+                if (k[i] == c) return children[i];
+            }
+            return null;
+        }
+
+        Node child(char c) {
+            Node existing = get(c);
+            if (existing != null) return existing;
+            int n = keys.length;
+            char[] newKeys = new char[n + 1];
+            Node[] newChildren = new Node[n + 1];
+            System.arraycopy(keys, 0, newKeys, 0, n);
+            System.arraycopy(children, 0, newChildren, 0, n);
+            Node node = new Node();
+            newKeys[n] = c;
+            newChildren[n] = node;
+            keys = newKeys;
+            children = newChildren;
+            return node;
+        }
+
+        void addPattern(Glob glob) {
+            // Patterns arrive in declaration order, so appending keeps each node sorted
+            List<Glob> list = new ArrayList<>(List.of(patterns));
+            list.add(glob);
+            patterns = list.toArray(NO_PATTERNS);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.yardenzamir.tooltipsreforgeddyed.config;
+
+import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig.ResolvedTag;
+import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig.TagEntry;
+import net.minecraft.registry.tag.TagKey;
+import net.minecraft.util.Identifier;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Every known {@link TagKey} resolved once against the config: either hidden or an interned
+ * {@link ResolvedTag}. Built after tags load, read-only afterwards, so lookups are a single
+ * identity-map probe with no string building.
+ * <p>
+ * {@code TagKey}s are interned by the game, so identity is the right key. An item tag and a
+ * block tag with the same id share an ordinal, which lets callers show each id only once.
+ */
+final class TagResolutionTable {
+    static final Entry HIDDEN = new Entry(-1, null);
+    private static final TagEntry NO_ENTRY = new TagEntry(null, null, null);
+
+    private final TagPatternMatcher matcher;
+    private final boolean useBlacklist;
+    private final Map<TagKey<?>, Entry> entries;
+    private final int idCount;
+
+    private TagResolutionTable(TagPatternMatcher matcher, boolean useBlacklist, Map<TagKey<?>, Entry> entries, int idCount) {
+        this.matcher = matcher;
+        this.useBlacklist = useBlacklist;
+        this.entries = entries;
+        this.idCount = idCount;
+    }
+
+    /**
+     * A table that knows no tags yet and resolves every lookup on the spot, for use while the
+     * real one is being built.
+     */
+    static TagResolutionTable live(TagPatternMatcher matcher, boolean useBlacklist) {
+        return new TagResolutionTable(matcher, useBlacklist, Map.of(), 0);
+    }
+
+    static TagResolutionTable build(TagPatternMatcher matcher, boolean useBlacklist, Iterator<TagKey<?>> tags) {
+        return build(matcher, useBlacklist, tags, tag -> resolve(matcher, useBlacklist, tag.id().toString()));
+    }
+
+    /**
+     * Builds the table with precomputed resolutions, e.g. from {@link CompiledTableCache}.
+     * {@code resolver} returns null for hidden tags.
+     */
+    static TagResolutionTable build(TagPatternMatcher matcher, boolean useBlacklist, Iterator<TagKey<?>> tags,
+                                    Function<TagKey<?>, ResolvedTag> resolver) {
+        Map<TagKey<?>, Entry> entries = new IdentityHashMap<>();
+        Map<Identifier, Integer> ordinals = new HashMap<>();
+        Map<ResolvedTag, ResolvedTag> interned = new HashMap<>();
+
+        while (tags.hasNext()) {
+            TagKey<?> tag = tags.next();
+            if (entries.containsKey(tag)) continue;
+
+            ResolvedTag resolved = resolver.apply(tag);
+            if (resolved == null) {
+                entries.put(tag, HIDDEN);
+                continue;
+            }
+            int ordinal = ordinals.computeIfAbsent(tag.id(), id -> ordinals.size());
+            entries.put(tag, new Entry(ordinal, interned.computeIfAbsent(resolved, r -> r)));
+        }
+        return new TagResolutionTable(matcher, useBlacklist, entries, ordinals.size());
+    }
+
+    /**
+     * The same tags resolved against a new matcher, re-running it only for tag ids that
+     * {@code affected} accepts and reusing every other entry. Ids whose resolution actually
+     * changed are added to {@code changedIds}.
+     */
+    TagResolutionTable rebuild(TagPatternMatcher matcher, boolean useBlacklist, Predicate<String> affected,
+                               Set<Identifier> changedIds) {
+        return build(matcher, useBlacklist, entries.keySet().iterator(), tag -> {
+            ResolvedTag previous = entries.get(tag).tag();
+            String tagId = tag.id().toString();
+            if (!affected.test(tagId)) return previous;
+            ResolvedTag resolved = resolve(matcher, useBlacklist, tagId);
+            if (!Objects.equals(resolved, previous)) changedIds.add(tag.id());
+            return resolved;
+        });
+    }
+
+    /**
+     * Returns how the tag is shown; {@link #HIDDEN} if it is not. Tags that were not known when
+     * the table was built are resolved on the spot and get no ordinal.
+     */
+    Entry get(TagKey<?> tag) {
+        Entry entry = entries.get(tag);
+        if (entry != null) return entry;
+        ResolvedTag resolved = resolve(matcher, useBlacklist, tag.id().toString());
+        return resolved == null ? HIDDEN : new Entry(-1, resolved);
+    }
+
+    /**
+     * Every visible tag by id, for persisting the table.
+     */
+    Map<String, ResolvedTag> visibleById() {
+        Map<String, ResolvedTag> visible = new HashMap<>();
+        entries.forEach((tag, entry) -> {
+            if (!entry.isHidden()) visible.put(tag.id().toString(), entry.tag());
+        });
+        return visible;
+    }
+
+    /**
+     * Number of distinct visible tag ids; ordinals are in {@code [0, idCount)}.
+     */
+    int idCount() {
+        return idCount;
+    }
+
+    private static ResolvedTag resolve(TagPatternMatcher matcher, boolean useBlacklist, String tagId) {
+        TagPatternMatcher.Match match = matcher.find(tagId);
+        if (useBlacklist) {
+            // Blacklist mode: show all tags except those with hidden=true
+            if (match == null) {
+                // Not in list = show with auto-derived display
+                return CustomTagsConfig.resolveTag(tagId, NO_ENTRY, false);
+            }
+            if (Boolean.TRUE.equals(match.entry().hidden())) {
+                return null; // hidden=true = blacklisted, don't show
+            }
+            // In list but not hidden = show with custom display (or derived if wildcard)
+            return CustomTagsConfig.resolveTag(tagId, match.entry(), match.isWildcard());
+        }
+        // Whitelist mode: only show tags matching the list
+        return match == null ? null : CustomTagsConfig.resolveTag(tagId, match.entry(), match.isWildcard());
+    }
+
+    record Entry(int ordinal, ResolvedTag tag) {
+        boolean isHidden() {
+            return tag == null;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.yardenzamir.tooltipsreforgeddyed.diagnostics;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.yardenzamir.tooltipsreforgeddyed.TooltipsReforgedDyed;
+import com.yardenzamir.tooltipsreforgeddyed.component.CustomTagComponent;
+import com.yardenzamir.tooltipsreforgeddyed.component.WaresTradeComponent;
+import net.minecraft.server.command.CommandManager;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.Text;
+import net.minecraftforge.fml.loading.FMLPaths;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Client-side {@code /tooltipsdyed} command for looking at tooltip performance on a live client.
+ */
+public final class DiagnosticsCommand {
+    private static final String DUMP_FILE = "tooltips_reforged_dyed_dump.nbt";
+
+    private DiagnosticsCommand() {}
+
+    public static void register(CommandDispatcher<ServerCommandSource> dispatcher) {
+        dispatcher.register(CommandManager.literal("tooltipsdyed")
+            .then(CommandManager.literal("stats")
+                .executes(ctx -> {
+                    TooltipProfiler.logCounters();
+                    TooltipsReforgedDyed.LOGGER.info("  trade cache: {}/{} hit/miss, badges drawn: {} in {} draw submissions",
+                        WaresTradeComponent.getCacheHits(), WaresTradeComponent.getCacheMisses(),
+                        CustomTagComponent.getBadgesDrawn(), CustomTagComponent.getDrawSubmissions());
+                    ctx.getSource().sendFeedback(() -> Text.literal("Tooltip counters written to the log"), false);
+                    return 1;
+                })
+                .then(CommandManager.literal("reset")
+                    .executes(ctx -> {
+                        TooltipProfiler.resetCounters();
+                        ctx.getSource().sendFeedback(() -> Text.literal("Tooltip counters reset"), false);
+                        return 1;
+                    })))
+            .then(CommandManager.literal("dump")
+                .then(CommandManager.literal("start")
+                    .executes(ctx -> {
+                        WorkloadDump.startRecording();
+                        ctx.getSource().sendFeedback(() -> Text.literal("Recording hovered stacks for the workload dump"), false);
+                        return 1;
+                    }))
+                .then(CommandManager.literal("stop")
+                    .executes(ctx -> {
+                        WorkloadDump.stopRecording();
+                        ctx.getSource().sendFeedback(() -> Text.literal("Stopped recording hovered stacks"), false);
+                        return 1;
+                    }))
+                .executes(ctx -> {
+                    Path file = FMLPaths.GAMEDIR.get().resolve(DUMP_FILE);
+                    try {
+                        int hovers = WorkloadDump.write(file);
+                        TooltipsReforgedDyed.LOGGER.info("Wrote tooltip workload dump with {} hovers to {}", hovers, file);
+                        ctx.getSource().sendFeedback(() -> Text.literal("Tooltip workload written to " + DUMP_FILE), false);
+                        return 1;
+                    } catch (IOException e) {
+                        TooltipsReforgedDyed.LOGGER.error("Failed to write tooltip workload dump", e);
+                        ctx.getSource().sendError(Text.literal("Could not write " + DUMP_FILE + ": " + e.getMessage()));
+                        return 0;
+                    }
+                })));
+    }
+}
@@ -0,0 +1,133 @@
+package com.yardenzamir.tooltipsreforgeddyed.diagnostics;
+
+import com.yardenzamir.tooltipsreforgeddyed.TooltipsReforgedDyed;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Always-on counters for every tooltip stage plus the matching {@link TooltipStageEvent}s.
+ * Counters cost two {@code nanoTime} calls and a few striped adds per stage, cheap enough to leave
+ * running on production clients; {@code /tooltipsdyed stats} writes them to the log.
+ * <p>
+ * Usage at a stage:
+ * <pre>{@code
+ * TooltipStageEvent event = TooltipProfiler.begin();
+ * long start = System.nanoTime();
+ * ... work ...
+ * if (TooltipProfiler.end(event, Stage.RESOLVE_TAGS, start, hit)) {
+ *     TooltipProfiler.commit(event, Stage.RESOLVE_TAGS, itemId, tagCount, ruleCount, hit);
+ * }
+ * }</pre>
+ * The item id and other fields are only computed when the event will actually be recorded.
+ * Events are only created while a flight recording is running; otherwise {@code begin} returns
+ * null and a stage costs just the counters.
+ */
+public final class TooltipProfiler {
+    // Kept current by a recorder listener, so a stage checks a field instead of allocating an
+    // event just to ask it whether it is enabled
+    private static volatile boolean recording;
+
+    static {
+        // Doesn't start Flight Recorder; the listener is told once something else initializes it
+        FlightRecorder.addListener(new FlightRecorderListener() {
+            @Override
+            public void recorderInitialized(FlightRecorder recorder) {
+                updateRecording(recorder);
+            }
+
+            @Override
+            public void recordingStateChanged(Recording changed) {
+                updateRecording(FlightRecorder.getFlightRecorder());
+            }
+        });
+    }
+
+    private TooltipProfiler() {}
+
+    private static void updateRecording(FlightRecorder recorder) {
+        recording = recorder.getRecordings().stream().anyMatch(r -> r.getState() == RecordingState.RUNNING);
+    }
+
+    public enum Stage {
+        APPEND_TOOLTIP("appendTooltip"),
+        RESOLVE_TAGS("resolveTags"),
+        PARSE_TRADE("parseTrade"),
+        LAYOUT_TAGS("layoutTags"),
+        DRAW_TAGS("drawTags"),
+        DRAW_TRADE("drawTrade"),
+        RELOAD_CONFIG("reloadConfig");
+
+        private final String id;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        Stage(String id) {
+            this.id = id;
+        }
+
+        public String id() {
+            return id;
+        }
+    }
+
+    /**
+     * Starts a stage's event, or returns null when no recording is running.
+     */
+    public static TooltipStageEvent begin() {
+        if (!recording) return null;
+        TooltipStageEvent event = new TooltipStageEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends a stage that has no cache. Returns whether the event should be committed.
+     */
+    public static boolean end(TooltipStageEvent event, Stage stage, long startNanos) {
+        stage.nanos.add(System.nanoTime() - startNanos);
+        stage.calls.increment();
+        if (event == null) return false;
+        event.end();
+        return event.shouldCommit();
+    }
+
+    /**
+     * Ends a stage that was served from, or missed, a cache. Returns whether the event should be
+     * committed.
+     */
+    public static boolean end(TooltipStageEvent event, Stage stage, long startNanos, boolean cacheHit) {
+        (cacheHit ? stage.hits : stage.misses).increment();
+        return end(event, stage, startNanos);
+    }
+
+    public static void commit(TooltipStageEvent event, Stage stage, String itemId, int tagCount, int ruleCount, boolean cacheHit) {
+        event.commit(stage, itemId, tagCount, ruleCount, cacheHit);
+    }
+
+    public static void logCounters() {
+        TooltipsReforgedDyed.LOGGER.info("Tooltip stage counters (calls, cache hits/misses, total ms, avg us):");
+        for (Stage stage : Stage.values()) {
+            long calls = stage.calls.sum();
+            long nanos = stage.nanos.sum();
+            TooltipsReforgedDyed.LOGGER.info("  {}: {} calls, {}/{} hit/miss, {} ms, {} us avg",
+                stage.id, calls, stage.hits.sum(), stage.misses.sum(),
+                String.format("%.2f", nanos / 1_000_000.0),
+                String.format("%.2f", calls == 0 ? 0.0 : nanos / 1000.0 / calls));
+        }
+    }
+
+    public static void resetCounters() {
+        for (Stage stage : Stage.values()) {
+            stage.calls.reset();
+            stage.hits.reset();
+            stage.misses.reset();
+            stage.nanos.reset();
+        }
+    }
+}
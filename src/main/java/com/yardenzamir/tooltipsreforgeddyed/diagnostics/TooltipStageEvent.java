@@ -0,0 +1,49 @@
+package com.yardenzamir.tooltipsreforgeddyed.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder event for one stage of building or drawing a tooltip. Stages nest on the
+ * same thread, so a slow {@code appendTooltip} can be broken down by the stages recorded inside it.
+ * <p>
+ * Disabled by default like every custom event; enable {@code tooltips_reforged_dyed.TooltipStage}
+ * in the {@code .jfc} settings used for the recording.
+ */
+@Name("tooltips_reforged_dyed.TooltipStage")
+@Label("Tooltip Stage")
+@Category({"Tooltips Reforged Dyed"})
+@Description("Time spent in one stage of building or drawing a tooltip")
+@StackTrace(false)
+public class TooltipStageEvent extends Event {
+    @Label("Stage")
+    String stage;
+
+    @Label("Item")
+    @Description("Hovered item id, empty for stages that don't know the item")
+    String itemId;
+
+    @Label("Tag Count")
+    @Description("Badges, trade entries or layout rows involved, depending on the stage")
+    int tagCount;
+
+    @Label("Rule Count")
+    @Description("itemTags and tagList entries in the active config")
+    int ruleCount;
+
+    @Label("Cache Hit")
+    boolean cacheHit;
+
+    void commit(TooltipProfiler.Stage stage, String itemId, int tagCount, int ruleCount, boolean cacheHit) {
+        this.stage = stage.id();
+        this.itemId = itemId;
+        this.tagCount = tagCount;
+        this.ruleCount = ruleCount;
+        this.cacheHit = cacheHit;
+        commit();
+    }
+}
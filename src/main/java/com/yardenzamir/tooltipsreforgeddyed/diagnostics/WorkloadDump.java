@@ -0,0 +1,140 @@
+package com.yardenzamir.tooltipsreforgeddyed.diagnostics;
+
+import net.minecraft.item.BlockItem;
+import net.minecraft.item.Item;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtIntArray;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.nbt.NbtString;
+import net.minecraft.registry.Registries;
+import net.minecraft.registry.tag.TagKey;
+import net.minecraft.util.Identifier;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Everything needed to replay a client's tooltip workload offline: every item's item and block
+ * tags, plus the last few thousand hovers (item and NBT) while recording was on, in the order
+ * they happened and with every repeat, so a replay sees the same mix of memo hits and misses.
+ * Recording is off until {@code /tooltipsdyed dump start}, so normal play keeps no copies;
+ * {@code /tooltipsdyed dump} writes the file, which the {@code replay} Gradle task reads.
+ * <p>
+ * The file is gzipped NBT:
+ * <pre>
+ * version: int
+ * tags: [string]                              tag id table
+ * items: [{id: string, itemTags: int[], blockTags: int[]}]   indices into tags
+ * hovers: [{id: string, tag?: compound}]     oldest first
+ * </pre>
+ */
+public final class WorkloadDump {
+    public static final int VERSION = 1;
+    private static final int MAX_HOVERS = 4096;
+
+    private static volatile boolean recording;
+
+    // Ring of the last MAX_HOVERS hovers; next is where the one after the newest goes. Guarded by
+    // HOVERS and only touched while recording
+    private static final Hover[] HOVERS = new Hover[MAX_HOVERS];
+    private static int next;
+    private static int recorded;
+
+    private WorkloadDump() {}
+
+    /**
+     * Starts recording hovers, forgetting any recorded before.
+     */
+    public static void startRecording() {
+        synchronized (HOVERS) {
+            Arrays.fill(HOVERS, null);
+            next = 0;
+            recorded = 0;
+            recording = true;
+        }
+    }
+
+    public static void stopRecording() {
+        recording = false;
+    }
+
+    public static boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * Remembers a hover while recording, overwriting the oldest once the ring is full; otherwise
+     * does nothing. Called for every tooltip, so it must stay free when not recording.
+     */
+    public static void recordHover(Item item, NbtCompound nbt) {
+        if (!recording) return;
+        Hover hover = new Hover(item, nbt == null ? null : nbt.copy());
+        synchronized (HOVERS) {
+            HOVERS[next] = hover;
+            next = (next + 1) % MAX_HOVERS;
+            recorded = Math.min(recorded + 1, MAX_HOVERS);
+        }
+    }
+
+    /**
+     * Writes the dump. Reads the registries, so call it on the client thread.
+     */
+    public static int write(Path file) throws IOException {
+        Map<Identifier, Integer> tagIndex = new HashMap<>();
+        NbtList tags = new NbtList();
+
+        NbtList items = new NbtList();
+        for (Item item : Registries.ITEM) {
+            NbtCompound entry = new NbtCompound();
+            entry.putString("id", Registries.ITEM.getId(item).toString());
+            entry.put("itemTags", indices(item.getRegistryEntry().streamTags(), tagIndex, tags));
+            Stream<? extends TagKey<?>> blockTags = item instanceof BlockItem blockItem
+                ? blockItem.getBlock().getDefaultState().streamTags()
+                : Stream.empty();
+            entry.put("blockTags", indices(blockTags, tagIndex, tags));
+            items.add(entry);
+        }
+
+        NbtList hovers = new NbtList();
+        List<Hover> inOrder = new ArrayList<>();
+        synchronized (HOVERS) {
+            // Oldest first: once the ring has wrapped, that is the slot the next hover overwrites
+            int first = recorded < MAX_HOVERS ? 0 : next;
+            for (int i = 0; i < recorded; i++) inOrder.add(HOVERS[(first + i) % MAX_HOVERS]);
+        }
+        for (Hover hover : inOrder) {
+            NbtCompound entry = new NbtCompound();
+            entry.putString("id", Registries.ITEM.getId(hover.item()).toString());
+            if (hover.nbt() != null) entry.put("tag", hover.nbt());
+            hovers.add(entry);
+        }
+
+        NbtCompound root = new NbtCompound();
+        root.putInt("version", VERSION);
+        root.put("tags", tags);
+        root.put("items", items);
+        root.put("hovers", hovers);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            NbtIo.writeCompressed(root, out);
+        }
+        return inOrder.size();
+    }
+
+    private static NbtIntArray indices(Stream<? extends TagKey<?>> tagKeys, Map<Identifier, Integer> tagIndex, NbtList tags) {
+        return new NbtIntArray(tagKeys.mapToInt(tag -> tagIndex.computeIfAbsent(tag.id(), id -> {
+            tags.add(NbtString.of(id.toString()));
+            return tags.size() - 1;
+        })).toArray());
+    }
+
+    private record Hover(Item item, NbtCompound nbt) {}
+}
@@ -0,0 +1,49 @@
+package com.yardenzamir.tooltipsreforgeddyed;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.IntSupplier;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Counts what a warm hover path allocates. The path runs long enough for the JIT to compile it,
+ * then the calling thread's allocated bytes are read before and after a measured run.
+ */
+public final class Allocations {
+    private static final int WARMUP_CALLS = 200_000;
+    public static final int MEASURED_CALLS = 20_000;
+
+    /**
+     * Bytes per call allowed on paths that should not allocate at all. The slack absorbs one-off
+     * allocations during the measured run, such as a deoptimization, spread over every call.
+     */
+    public static final double NO_GARBAGE = 8;
+
+    private static long sink;
+
+    private Allocations() {}
+
+    /**
+     * Bytes allocated by {@link #MEASURED_CALLS} warm calls of {@code op}. {@code op} returns
+     * something derived from its result so the JIT can't drop the work.
+     */
+    public static long bytesAllocated(IntSupplier op) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "Thread allocation accounting is not supported by this JVM");
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        long result = 0;
+        for (int i = 0; i < WARMUP_CALLS; i++) result += op.getAsInt();
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MEASURED_CALLS; i++) result += op.getAsInt();
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        sink += result;
+        return allocated;
+    }
+
+    public static double bytesPerCall(IntSupplier op) {
+        return (double) bytesAllocated(op) / MEASURED_CALLS;
+    }
+}
@@ -0,0 +1,173 @@
+package com.yardenzamir.tooltipsreforgeddyed.component;
+
+import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig.ResolvedTag;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.util.Identifier;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static com.yardenzamir.tooltipsreforgeddyed.Allocations.NO_GARBAGE;
+import static com.yardenzamir.tooltipsreforgeddyed.Allocations.bytesPerCall;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Once a tooltip's components exist, drawing them again each frame and finding an already
+ * parsed trade must not allocate. The components draw onto a canvas that only sums what it is
+ * given, since emitting vertices needs a render context.
+ */
+class TooltipFrameAllocationTest {
+    private static final int ITEM_COUNT = 200;
+    private static final int MAX_WIDTH = 240;
+
+    private final Random random = new Random(42);
+    private final Set<Identifier> itemIds = new HashSet<>();
+    private final Predicate<Identifier> isKnownItem = itemIds::contains;
+
+    TooltipFrameAllocationTest() {
+        for (int i = 0; i < ITEM_COUNT; i++) itemIds.add(new Identifier("test", "item_" + i));
+    }
+
+    @Test
+    void tradeCacheHitDoesNotAllocate() {
+        // Created once, like the method reference WaresTradeComponent.fromNbt passes
+        Function<NbtCompound, WaresTradeComponent> parser = nbt -> WaresTradeComponent.parse(nbt, isKnownItem);
+        TradeComponentCache cache = new TradeComponentCache();
+        NbtCompound[] trades = new NbtCompound[16];
+        WaresTradeComponent[] parsed = new WaresTradeComponent[trades.length];
+        for (int i = 0; i < trades.length; i++) {
+            trades[i] = trade(8, 2);
+            parsed[i] = cache.get(trades[i], parser);
+        }
+        assertSame(parsed[0], cache.get(trades[0], parser));
+
+        int[] cursor = {0};
+        double bytes = bytesPerCall(() -> {
+            int trade = cursor[0];
+            cursor[0] = (trade + 1) % trades.length;
+            return cache.get(trades[trade], parser).hashCode();
+        });
+
+        assertTrue(bytes <= NO_GARBAGE, "trade cache hit allocates " + bytes + " bytes per call");
+    }
+
+    @Test
+    void badgeFrameDoesNotAllocate() {
+        List<ResolvedTag> tags = new ArrayList<>();
+        for (int i = 0; i < 24; i++) tags.add(new ResolvedTag("Group " + i, 0xFF000000 | (i * 0x1F3D5B)));
+        CustomTagComponent badges = new CustomTagComponent(tags);
+        SummingCanvas canvas = new SummingCanvas();
+
+        double bytes = bytesPerCall(() -> {
+            badges.draw(canvas, 0, 0, MAX_WIDTH);
+            return canvas.sum;
+        });
+
+        assertTrue(bytes <= NO_GARBAGE, "badge frame allocates " + bytes + " bytes per call");
+    }
+
+    @Test
+    void tradeGridFrameDoesNotAllocate() {
+        // More icons than the default cap, so the frame also draws the "+N more" line
+        WaresTradeComponent grid = WaresTradeComponent.parse(trade(40, 10), isKnownItem);
+        SummingCanvas canvas = new SummingCanvas();
+
+        double bytes = bytesPerCall(() -> {
+            grid.draw(canvas, 0, 0, MAX_WIDTH);
+            return canvas.sum;
+        });
+
+        assertTrue(bytes <= NO_GARBAGE, "trade grid frame allocates " + bytes + " bytes per call");
+    }
+
+    private NbtCompound trade(int requested, int payment) {
+        NbtCompound trade = new NbtCompound();
+        trade.put("requestedItems", itemList(requested));
+        trade.put("paymentItems", itemList(payment));
+        return trade;
+    }
+
+    private NbtList itemList(int size) {
+        NbtList list = new NbtList();
+        for (int i = 0; i < size; i++) {
+            NbtCompound entry = new NbtCompound();
+            entry.putString("id", "test:item_" + random.nextInt(ITEM_COUNT));
+            entry.putByte("Count", (byte) (1 + random.nextInt(64)));
+            list.add(entry);
+        }
+        return list;
+    }
+
+    /**
+     * Draws nothing; folds every coordinate and color into {@link #sum} so none of the work can
+     * be dropped. Trade icons are never materialized, which the game does once per line anyway.
+     */
+    private static final class SummingCanvas implements TooltipCanvas {
+        int sum;
+
+        @Override
+        public int fontHeight() {
+            return 9;
+        }
+
+        @Override
+        public int textWidth(String text) {
+            return text.length() * 6;
+        }
+
+        @Override
+        public int textWidth(ResolvedTag tag) {
+            return tag.textWidth(TagTextWidths.generation(), text -> text.length() * 6);
+        }
+
+        @Override
+        public void beginQuads() {
+        }
+
+        @Override
+        public void quad(int x1, int y1, int x2, int y2, int color) {
+            sum += x1 ^ y1 ^ x2 ^ y2 ^ color;
+        }
+
+        @Override
+        public void beginScaledText(float scale) {
+        }
+
+        @Override
+        public void scaledText(String text, float x, float y, int color) {
+            sum += text.length() ^ (int) x ^ (int) y ^ color;
+        }
+
+        @Override
+        public void endScaledText() {
+        }
+
+        @Override
+        public void submit() {
+            sum++;
+        }
+
+        @Override
+        public void fill(int x1, int y1, int x2, int y2, int color) {
+            sum += x1 ^ y1 ^ x2 ^ y2 ^ color;
+        }
+
+        @Override
+        public void text(String text, int x, int y, int color) {
+            sum += text.length() ^ x ^ y ^ color;
+        }
+
+        @Override
+        public void item(WaresTradeComponent.TradeItem item, int x, int y) {
+            sum += x ^ y;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.yardenzamir.tooltipsreforgeddyed.config;
+
+import com.yardenzamir.tooltipsreforgeddyed.config.CustomTagsConfig.ResolvedTag;
+import com.yardenzamir.tooltipsreforgeddyed.diagnostics.WorkloadDump;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.registry.Registries;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.registry.entry.RegistryEntry;
+import net.minecraft.registry.tag.TagKey;
+import net.minecraft.util.Identifier;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.yardenzamir.tooltipsreforgeddyed.Allocations.NO_GARBAGE;
+import static com.yardenzamir.tooltipsreforgeddyed.Allocations.bytesAllocated;
+import static com.yardenzamir.tooltipsreforgeddyed.Allocations.bytesPerCall;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * The config lookups made on every hover, once a config is loaded and its tables are built,
+ * must not allocate. Runs against the game's registered items with synthetic tags bound to them.
+ */
+class HoverLookupAllocationTest {
+    private static final int TAG_COUNT = 64;
+    private static final String TRADE_SOURCE = "StoredAgreement.tag";
+
+    // No tags and no trade source, so every hover of it takes the early return
+    private static final Item PLAIN = Items.STONE;
+    private static final Item TRADE_CARRIER = Items.PAPER;
+
+    private static ItemStack[] tagged;
+
+    @BeforeAll
+    static void loadConfig(@TempDir Path configDir) throws Exception {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+        tagged = bindTags();
+
+        StringBuilder tagList = new StringBuilder();
+        // Half the tags are shown, so items resolve to lists of different lengths
+        for (int i = 0; i < TAG_COUNT; i += 2) {
+            if (!tagList.isEmpty()) tagList.append(", ");
+            tagList.append("\"test:group_").append(i).append("\": {}");
+        }
+        Path configFile = configDir.resolve("tooltips_reforged_dyed.json");
+        Files.writeString(configFile, "{\"useBlacklist\": false, \"tradeSources\": {\""
+            + Registries.ITEM.getId(TRADE_CARRIER) + "\": \"" + TRADE_SOURCE + "\"}, \"tagList\": {" + tagList + "}}");
+        CustomTagsConfig.load(configFile);
+        awaitTables();
+    }
+
+    @Test
+    void skippingAnItemWithNothingToShowAllocatesNothing() {
+        assertEquals(0, CustomTagsConfig.getItemFlags(PLAIN));
+        ItemStack stack = new ItemStack(PLAIN);
+
+        // What appendTooltip runs before it returns for such a stack
+        long allocated = bytesAllocated(() -> {
+            WorkloadDump.recordHover(stack.getItem(), stack.getNbt());
+            String error = CustomTagsConfig.getAndClearError();
+            int flags = CustomTagsConfig.getItemFlags(stack.getItem());
+            boolean mayHaveTrade = (flags & CustomTagsConfig.MAY_CARRY_TRADE) != 0 && stack.getNbt() != null;
+            return (error == null ? 0 : 1) + ((flags & CustomTagsConfig.MAY_HAVE_BADGES) == 0 && !mayHaveTrade ? 0 : 2);
+        });
+
+        assertEquals(0, allocated, "bytes allocated skipping " + stack.getItem());
+    }
+
+    @Test
+    void badgeLookupDoesNotAllocate() {
+        int[] cursor = {0};
+        double bytes = bytesPerCall(() -> {
+            int item = cursor[0];
+            cursor[0] = item + 1 == tagged.length ? 0 : item + 1;
+            List<ResolvedTag> tags = CustomTagsConfig.getTagsForItem(tagged[item]);
+            int length = 0;
+            for (int i = 0; i < tags.size(); i++) length += tags.get(i).text().length();
+            return length;
+        });
+
+        assertTrue(bytes <= NO_GARBAGE, "badge lookup allocates " + bytes + " bytes per call");
+    }
+
+    @Test
+    void tradeLookupDoesNotAllocate() {
+        ItemStack stack = new ItemStack(TRADE_CARRIER);
+        stack.setNbt(agreementNbt());
+        assertNotNull(CustomTagsConfig.getTradeNbt(stack));
+
+        double bytes = bytesPerCall(() -> CustomTagsConfig.getTradeNbt(stack) == null ? 0 : 1);
+
+        assertTrue(bytes <= NO_GARBAGE, "trade lookup allocates " + bytes + " bytes per call");
+    }
+
+    /**
+     * Gives every other item two of the synthetic tags, the way a modpack spreads them, and
+     * returns a stack of each tagged item.
+     */
+    private static ItemStack[] bindTags() {
+        Map<TagKey<Item>, List<RegistryEntry<Item>>> tags = new HashMap<>();
+        List<ItemStack> stacks = new ArrayList<>();
+        int index = 0;
+        for (Item item : Registries.ITEM) {
+            if (item == PLAIN || item == TRADE_CARRIER || index++ % 2 == 0) continue;
+            for (int tag : new int[] {index % TAG_COUNT, (index * 7) % TAG_COUNT}) {
+                TagKey<Item> key = TagKey.of(RegistryKeys.ITEM, new Identifier("test", "group_" + tag));
+                tags.computeIfAbsent(key, k -> new ArrayList<>()).add(item.getRegistryEntry());
+            }
+            stacks.add(new ItemStack(item));
+        }
+        Registries.ITEM.populateTags(tags);
+        // Block items also read their block's tags, which nothing has loaded
+        Registries.BLOCK.clearTags();
+        return stacks.toArray(ItemStack[]::new);
+    }
+
+    /**
+     * Waits for the background build that the first lookup starts. Until it finishes every item
+     * reports every flag.
+     */
+    private static void awaitTables() throws InterruptedException {
+        long deadline = System.nanoTime() + 30_000_000_000L;
+        while (CustomTagsConfig.getItemFlags(PLAIN) != 0) {
+            if (System.nanoTime() > deadline) fail("Tag tables were not built within 30 s");
+            Thread.sleep(10);
+        }
+        assertFalse(CustomTagsConfig.getTagsForItem(tagged[0]).isEmpty(), "tagged items should have badges");
+    }
+
+    private static NbtCompound agreementNbt() {
+        NbtCompound trade = new NbtCompound();
+        trade.put("requestedItems", new NbtList());
+        trade.put("paymentItems", new NbtList());
+        NbtCompound agreement = new NbtCompound();
+        agreement.put("tag", trade);
+        NbtCompound nbt = new NbtCompound();
+        nbt.put("StoredAgreement", agreement);
+        return nbt;
+    }
+}